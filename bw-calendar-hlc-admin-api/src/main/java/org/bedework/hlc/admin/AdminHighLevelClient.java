@@ -1,11 +1,49 @@
 package org.bedework.hlc.admin;
 
+import org.bedework.base.response.GetEntitiesResponse;
+import org.bedework.base.response.GetEntityResponse;
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.svc.BwCalSuite;
 import org.bedework.hlc.rw.ReadWriteHighLevelClient;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 /** Provides high level operations on the calendar store.
  * The client may be operating in guest mode or as an
  * authenticated user.
  */
 public interface AdminHighLevelClient extends
         ReadWriteHighLevelClient {
+  /* -------------------------------------------------
+   *                     Admin Groups
+   * ------------------------------------------------- */
+
+  /** Members of a number of admin groups at once.
+   *
+   * @param groupHrefs principal hrefs of the groups
+   * @param transitive true to include members of member groups
+   * @return response with a map of group href -> members in the order
+   *         of groupHrefs. Empty list for an unknown group. Members
+   *         are copies - groups without their own members.
+   */
+  GetEntityResponse<Map<String, List<BwPrincipal<?>>>> getAdminGroupMembers(
+          Collection<String> groupHrefs,
+          boolean transitive);
+
+  /**
+   * @param principalHref href of a user or group
+   * @return response with copies of the admin groups the principal
+   *         is in directly or through other groups - without their
+   *         members.
+   */
+  GetEntitiesResponse<BwPrincipal<?>> getAdminGroupsFor(
+          String principalHref);
+
+  /**
+   * @return response with a map of admin group href -> a copy of the
+   *         cal suite it administers
+   */
+  GetEntityResponse<Map<String, BwCalSuite>> getCalSuitesByGroup();
 }
@@ -0,0 +1,163 @@
+package org.bedework.hlc.admin.impl;
+
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.svc.BwCalSuite;
+import org.bedework.hlc.common.GroupMembershipIndex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Membership of the admin groups. Built from the cloned admin groups
+ * and suites held by the read-only client and rebuilt when those are
+ * refreshed. Transitive queries use the current GroupMembershipIndex
+ * if the read-only client built it from the same groups, otherwise an
+ * index of their own.
+ *
+ * <p>All maps are keyed by principal href.</p>
+ */
+final class AdminGroupGraph {
+  private static volatile AdminGroupGraph current;
+
+  /* What current was built from */
+  private final Collection<BwGroup<?>> source;
+
+  private final Map<String, BwPrincipal<?>> principals = new HashMap<>();
+
+  /* group -> direct members */
+  private final Map<String, Set<String>> members = new HashMap<>();
+
+  private final GroupMembershipIndex index;
+
+  private final Map<String, BwCalSuite> suiteByGroup = new HashMap<>();
+
+  private AdminGroupGraph(final Collection<BwGroup<?>> groups,
+                          final Collection<BwCalSuite> suites) {
+    source = groups;
+
+    final ArrayDeque<BwGroup<?>> work = new ArrayDeque<>(groups);
+
+    while (!work.isEmpty()) {
+      final BwGroup<?> g = work.poll();
+      final String href = g.getPrincipalRef();
+
+      if (members.containsKey(href)) {
+        continue;
+      }
+
+      principals.put(href, g);
+      final Set<String> ms = new LinkedHashSet<>();
+      members.put(href, ms);
+
+      final var gms = g.getGroupMembers();
+      if (gms == null) {
+        continue;
+      }
+
+      for (final var mbr: gms) {
+        final String mhref = mbr.getPrincipalRef();
+
+        principals.putIfAbsent(mhref, mbr);
+        ms.add(mhref);
+
+        if (mbr instanceof final BwGroup<?> mg) {
+          work.add(mg);
+        }
+      }
+    }
+
+    /* The read-only client builds the index when it refreshes the
+       groups. The current one may come from a later refresh than the
+       groups we were given - only use it if it was built from them */
+    final var cur = GroupMembershipIndex.getCurrent();
+    if ((cur != null) && cur.isBuiltFrom(groups)) {
+      index = cur;
+    } else {
+      index = GroupMembershipIndex.build(groups);
+    }
+
+    if (suites != null) {
+      for (final var cs: suites) {
+        suiteByGroup.put(cs.getGroup().getPrincipalRef(), cs);
+      }
+    }
+  }
+
+  /**
+   * @param groups cloned admin groups
+   * @param suites cloned cal suites
+   * @return graph for these groups - rebuilt only if they changed
+   */
+  static AdminGroupGraph get(final Collection<BwGroup<?>> groups,
+                             final Collection<BwCalSuite> suites) {
+    final var graph = current;
+
+    if ((graph != null) && (graph.source == groups)) {
+      return graph;
+    }
+
+    final var res = new AdminGroupGraph(groups, suites);
+    current = res;
+
+    return res;
+  }
+
+  /**
+   * @param groupHref group
+   * @param transitive true to include members of member groups
+   * @return members - empty if unknown
+   */
+  List<BwPrincipal<?>> getMembers(final String groupHref,
+                                  final boolean transitive) {
+    if (transitive) {
+      return toPrincipals(index.getMembers(groupHref));
+    }
+
+    return toPrincipals(members.get(groupHref));
+  }
+
+  /**
+   * @param principalHref principal
+   * @return all groups the principal is in, directly or not
+   */
+  List<BwPrincipal<?>> getGroups(final String principalHref) {
+    return toPrincipals(index.getGroups(principalHref));
+  }
+
+  /**
+   * @return unmodifiable map of group href to its cal suite
+   */
+  Map<String, BwCalSuite> getSuitesByGroup() {
+    return Collections.unmodifiableMap(suiteByGroup);
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private List<BwPrincipal<?>> toPrincipals(
+          final Collection<String> hrefs) {
+    final List<BwPrincipal<?>> res = new ArrayList<>();
+
+    if (hrefs == null) {
+      return res;
+    }
+
+    for (final String href: hrefs) {
+      final var p = principals.get(href);
+
+      if (p != null) {
+        res.add(p);
+      }
+    }
+
+    return res;
+  }
+}
@@ -1,13 +1,134 @@
 package org.bedework.hlc.admin.impl;
 
+import org.bedework.base.response.GetEntitiesResponse;
+import org.bedework.base.response.GetEntityResponse;
+import org.bedework.base.response.Response;
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.svc.BwCalSuite;
 import org.bedework.hlc.admin.AdminHighLevelClient;
 import org.bedework.hlc.rw.impl.ReadWriteHighLevelClientImpl;
 import org.bedework.llc.common.LowLevelClient;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public class AdminHighLevelClientImpl
         extends ReadWriteHighLevelClientImpl
         implements AdminHighLevelClient {
   public AdminHighLevelClientImpl(final LowLevelClient cl) {
     super(cl);
   }
+
+  /* ------------------------------------------------------------
+   *                     Admin Groups
+   * ------------------------------------------------------------ */
+
+  @Override
+  public GetEntityResponse<Map<String, List<BwPrincipal<?>>>> getAdminGroupMembers(
+          final Collection<String> groupHrefs,
+          final boolean transitive) {
+    final var resp =
+            new GetEntityResponse<Map<String, List<BwPrincipal<?>>>>();
+
+    try {
+      final var graphResp = getGroupGraph();
+      if (!graphResp.isOk()) {
+        return failed(resp, graphResp);
+      }
+
+      final var graph = graphResp.getEntity();
+      final Map<String, List<BwPrincipal<?>>> res =
+              new LinkedHashMap<>();
+
+      for (final String href: groupHrefs) {
+        res.put(href, copies(graph.getMembers(href, transitive)));
+      }
+
+      return resp.setEntity(res);
+    } catch (final Throwable t) {
+      return resp.error(t);
+    }
+  }
+
+  @Override
+  public GetEntitiesResponse<BwPrincipal<?>> getAdminGroupsFor(
+          final String principalHref) {
+    final var resp = new GetEntitiesResponse<BwPrincipal<?>>();
+
+    try {
+      final var graphResp = getGroupGraph();
+      if (!graphResp.isOk()) {
+        return failed(resp, graphResp);
+      }
+
+      return resp.setEntities(copies(graphResp.getEntity()
+                                              .getGroups(principalHref)));
+    } catch (final Throwable t) {
+      return resp.error(t);
+    }
+  }
+
+  @Override
+  public GetEntityResponse<Map<String, BwCalSuite>> getCalSuitesByGroup() {
+    final var resp = new GetEntityResponse<Map<String, BwCalSuite>>();
+
+    try {
+      final var graphResp = getGroupGraph();
+      if (!graphResp.isOk()) {
+        return failed(resp, graphResp);
+      }
+
+      /* The graph holds the shared suites - hand out copies */
+      final Map<String, BwCalSuite> res = new LinkedHashMap<>();
+      for (final var ent: graphResp.getEntity()
+                                   .getSuitesByGroup().entrySet()) {
+        res.put(ent.getKey(), (BwCalSuite)ent.getValue().clone());
+      }
+
+      return resp.setEntity(res);
+    } catch (final Throwable t) {
+      return resp.error(t);
+    }
+  }
+
+  private GetEntityResponse<AdminGroupGraph> getGroupGraph() {
+    final var resp = new GetEntityResponse<AdminGroupGraph>();
+    final var groupsResp = refreshAdminGroupInfo();
+
+    if (!groupsResp.isOk()) {
+      return failed(resp, groupsResp);
+    }
+
+    return resp.setEntity(AdminGroupGraph.get(groupsResp.getEntities(),
+                                              getCalSuitesInfo()));
+  }
+
+  /* The graph holds the shared principals - hand out copies. Groups
+     are copied without their members as cloneGroup does. */
+  private static List<BwPrincipal<?>> copies(
+          final List<BwPrincipal<?>> vals) {
+    final List<BwPrincipal<?>> res = new ArrayList<>(vals.size());
+
+    for (final var p: vals) {
+      if (p instanceof final BwGroup<?> g) {
+        res.add(g.shallowClone());
+      } else {
+        res.add((BwPrincipal<?>)p.clone());
+      }
+    }
+
+    return res;
+  }
+
+  private static <T extends Response<?>> T failed(final T resp,
+                                                  final Response<?> from) {
+    resp.setStatus(from.getStatus());
+    resp.setMessage(from.getMessage());
+
+    return resp;
+  }
 }
@@ -0,0 +1,322 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.locale.BwLocale;
+import org.bedework.util.timezones.Timezones;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.bedework.util.servlet.ActionTypes.actionTypeAction;
+import static org.bedework.util.servlet.ConversationTypes.conversationTypeOnly;
+
+/** Runs high level client operations on a pool of threads and
+ * returns futures so that a page can start its independent lookups
+ * together.
+ *
+ * <p>The low level client behind a high level client belongs to one
+ * session and is not thread-safe. Operations started with call use
+ * that client and are run one at a time, each starting when the one
+ * submitted before it has finished. Operations started with
+ * callIndependent run in parallel, each on a client of its own taken
+ * from the supplier given to the constructor. Each such operation is
+ * run as a request of its own on that client - between requestIn and
+ * requestOut. Operations started with callShared must not touch a
+ * low level client.</p>
+ *
+ * <p>The locale and default timezone of the submitting thread are
+ * set on the thread which runs an operation and restored afterwards.</p>
+ *
+ * <p>All operations must complete before the request ends - call
+ * join before requestOut. Call close when the session ends to stop the
+ * threads and close the clients made by the supplier. The wrapped
+ * client is not closed.</p>
+ *
+ * @param <T> type of client
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class AsyncHighLevelClient<T extends HighLevelClient> {
+  private static final AtomicInteger threadNum = new AtomicInteger();
+
+  /* Operations mostly wait on the store. Idle threads go away. */
+  private final ExecutorService executor =
+          Executors.newCachedThreadPool(r -> {
+            final Thread t = new Thread(
+                    r, "bw-hlc-async-" + threadNum.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+          });
+
+  private final T client;
+
+  /* Makes the clients for independent operations - null for none */
+  private final Supplier<T> clientFactory;
+
+  /* Clients made by clientFactory not currently in use */
+  private final Deque<T> idle = new ArrayDeque<>();
+
+  private boolean closed;
+
+  /* Completes when the last operation submitted with call is done */
+  private CompletableFuture<?> last = CompletableFuture.completedFuture(null);
+
+  private final List<CompletableFuture<?>> outstanding =
+          new ArrayList<>();
+
+  /* Thread state captured at submit time */
+  private record Context(Locale locale,
+                         String tzid) {
+    static Context capture() {
+      return new Context(BwLocale.getLocale(),
+                         Timezones.getThreadDefaultTzid());
+    }
+
+    void set() {
+      BwLocale.setLocale(locale);
+
+      try {
+        Timezones.setThreadDefaultTzid(tzid);
+      } catch (final Throwable t) {
+        throw new RuntimeException(t);
+      }
+    }
+
+    <R> Supplier<R> wrap(final Supplier<R> op) {
+      return () -> {
+        final Context saved = capture();
+
+        set();
+        try {
+          return op.get();
+        } finally {
+          saved.set();
+        }
+      };
+    }
+  }
+
+  /**
+   * @param client the client - used by one request at a time
+   */
+  public AsyncHighLevelClient(final T client) {
+    this(client, null);
+  }
+
+  /**
+   * @param client the client - used by one request at a time
+   * @param clientFactory makes further clients, each with its own low
+   *                      level client, for callIndependent. They are
+   *                      kept and reused by this object only and
+   *                      closed by close.
+   */
+  public AsyncHighLevelClient(final T client,
+                              final Supplier<T> clientFactory) {
+    this.client = client;
+    this.clientFactory = clientFactory;
+  }
+
+  /**
+   * @return the wrapped client
+   */
+  public T getClient() {
+    return client;
+  }
+
+  /** Run an operation which uses the client. Operations are run one
+   * at a time in the order submitted. A failure does not stop later
+   * operations.
+   *
+   * @param op the operation
+   * @param <R> result type
+   * @return future result
+   */
+  public <R> CompletableFuture<R> call(final Function<T, R> op) {
+    final Supplier<R> task = Context.capture().wrap(() -> op.apply(client));
+    final CompletableFuture<R> res;
+
+    synchronized (this) {
+      res = last.handle((r, t) -> null)
+                .thenApplyAsync(ignored -> task.get(), executor);
+      last = res;
+    }
+
+    return track(res);
+  }
+
+  /** Run an operation in parallel with any others on a client of its
+   * own. Without a client factory this is the same as call.
+   *
+   * @param op the operation - must not depend on the state of the
+   *           wrapped client
+   * @param <R> result type
+   * @return future result
+   */
+  public <R> CompletableFuture<R> callIndependent(final Function<T, R> op) {
+    if (clientFactory == null) {
+      return call(op);
+    }
+
+    return track(CompletableFuture.supplyAsync(
+            Context.capture().wrap(() -> inRequest(op)), executor));
+  }
+
+  /** Run an operation which does not touch the low level client, e.g.
+   * formatting or building views from results already fetched. These
+   * are not serialised.
+   *
+   * @param op the operation
+   * @param <R> result type
+   * @return future result
+   */
+  public <R> CompletableFuture<R> callShared(final Supplier<R> op) {
+    return track(CompletableFuture.supplyAsync(Context.capture().wrap(op),
+                                               executor));
+  }
+
+  /**
+   * @return future for the current principal
+   */
+  public CompletableFuture<BwPrincipal<?>> getCurrentPrincipal() {
+    return call(HighLevelClient::getCurrentPrincipal);
+  }
+
+  /**
+   * @return future for guest mode flag
+   */
+  public CompletableFuture<Boolean> isGuestMode() {
+    return call(HighLevelClient::isGuestMode);
+  }
+
+  /** Stop the threads and close the idle clients made by the client
+   * factory. Clients still in use are closed when their operation
+   * completes. Nothing may be submitted afterwards.
+   */
+  public void close() {
+    final List<T> toClose;
+
+    synchronized (idle) {
+      closed = true;
+      toClose = new ArrayList<>(idle);
+      idle.clear();
+    }
+
+    executor.shutdown();
+
+    for (final T cl: toClose) {
+      closeClient(cl);
+    }
+  }
+
+  /** Wait for every operation started so far. Failures are left in
+   * the individual futures.
+   */
+  public void join() {
+    final CompletableFuture<?>[] fs;
+
+    synchronized (outstanding) {
+      fs = outstanding.toArray(new CompletableFuture<?>[0]);
+      outstanding.clear();
+    }
+
+    CompletableFuture.allOf(fs)
+                     .exceptionally(t -> null)
+                     .join();
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  /* Run op on a borrowed client as a request of its own. A client
+   * which fails to start or end the request is discarded.
+   */
+  private <R> R inRequest(final Function<T, R> op) {
+    final T cl = borrow();
+    final long start = System.currentTimeMillis();
+    boolean reusable = false;
+
+    try {
+      cl.requestIn(conversationTypeOnly);
+
+      try {
+        return op.apply(cl);
+      } finally {
+        cl.requestOut(conversationTypeOnly, actionTypeAction,
+                      System.currentTimeMillis() - start);
+        reusable = true;
+      }
+    } finally {
+      if (reusable) {
+        release(cl);
+      } else {
+        closeClient(cl);
+      }
+    }
+  }
+
+  private T borrow() {
+    synchronized (idle) {
+      final T cl = idle.poll();
+      if (cl != null) {
+        return cl;
+      }
+    }
+
+    return clientFactory.get();
+  }
+
+  private void release(final T cl) {
+    synchronized (idle) {
+      if (!closed) {
+        idle.push(cl);
+        return;
+      }
+    }
+
+    closeClient(cl);
+  }
+
+  private void closeClient(final T cl) {
+    try {
+      cl.close();
+    } catch (final Throwable t) {
+      cl.warn("Unable to close client: " + t.getMessage());
+    }
+  }
+
+  private <R> CompletableFuture<R> track(final CompletableFuture<R> f) {
+    synchronized (outstanding) {
+      outstanding.add(f);
+    }
+
+    return f;
+  }
+}
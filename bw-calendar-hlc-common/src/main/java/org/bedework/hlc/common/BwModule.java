@@ -22,6 +22,8 @@ package org.bedework.hlc.common;
 import org.bedework.base.exc.BedeworkException;
 import org.bedework.base.response.Response;
 import org.bedework.caldav.util.filter.FilterBase;
+import org.bedework.hlc.common.metrics.JfrEvents;
+import org.bedework.hlc.common.metrics.ModuleMetrics;
 import org.bedework.util.logging.BwLogger;
 import org.bedework.util.logging.Logged;
 import org.bedework.util.misc.Util;
@@ -62,6 +64,12 @@ public class BwModule implements Logged, Serializable {
 
   private long timeIn;
 
+  /* True if requestIn was counted in the metrics */
+  private transient boolean metricsIn;
+
+  /* Action type counted by requestIn */
+  private transient int metricsActionType;
+
   private Request currentReq;
 
   public BwModule(final String moduleName) {
@@ -158,7 +166,21 @@ public class BwModule implements Logged, Serializable {
    * @return true if we succeeded - false if interrupted or too busy
    */
   public synchronized boolean claim() {
+    final var jfr = new JfrEvents.ModuleClaim();
+    jfr.begin();
+    jfr.module = getModuleName();
+
+    final boolean claimed = doClaim(jfr);
+
+    jfr.claimed = claimed;
+    jfr.commit();
+
+    return claimed;
+  }
+
+  private boolean doClaim(final JfrEvents.ModuleClaim jfr) {
     int attempts = 0;
+    long waitStart = 0;
     while (getInuse()) {
       if (debug()) {
         debug("Module " + getModuleName() +
@@ -167,19 +189,30 @@ public class BwModule implements Logged, Serializable {
       }
       // double-clicking on our links eh?
       if ((getWaiters() > 10) || (attempts > 3)) {
+        ModuleMetrics.getInstance().claimRejected();
         return false;
       }
+      if (waitStart == 0) {
+        waitStart = System.currentTimeMillis();
+      }
       incWaiters();
       try {
         wait(5000);
         attempts++;
+        jfr.attempts = attempts;
       } catch (final InterruptedException e) {
+        ModuleMetrics.getInstance().claimRejected();
         return false;
       } finally {
         decWaiters();
       }
     }
 
+    if (waitStart != 0) {
+      ModuleMetrics.getInstance()
+                   .claimWaited(System.currentTimeMillis() - waitStart);
+    }
+
     setInuse(true);
     whenClaimed = Util.icalUTCTimestamp();
 
@@ -196,6 +229,13 @@ public class BwModule implements Logged, Serializable {
     setInuse(true);
     timeIn = System.currentTimeMillis();
 
+    if (!metricsIn) {
+      metricsActionType = currentReq.getActionType();
+      ModuleMetrics.getInstance().requestIn(getModuleName(),
+                                            metricsActionType);
+      metricsIn = true;
+    }
+
     getClient().requestIn(currentReq.getConversationType());
   }
 
@@ -204,9 +244,18 @@ public class BwModule implements Logged, Serializable {
       return;
     }
 
+    final long millis = System.currentTimeMillis() - timeIn;
+
+    if (metricsIn) {
+      ModuleMetrics.getInstance().requestOut(getModuleName(),
+                                             metricsActionType,
+                                             millis);
+      metricsIn = false;
+    }
+
     cl.requestOut(currentReq.getConversationType(),
                   currentReq.getActionType(),
-                  System.currentTimeMillis() - timeIn);
+                  millis);
   }
 
   /** Close the session.
@@ -26,68 +26,98 @@ import org.bedework.util.misc.Util;
 import org.bedework.util.servlet.filters.ConfiguredXSLTFilter.XSLTConfig;
 import org.bedework.util.servlet.filters.PresentationState;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
 
 /** This class will be exposed to JSP via the request. Do not expose the
  * client indirectly through this.
  *
+ * <p>When serialized (session replication or persistence) only the
+ * keys needed to rebuild the state are written: view type, date,
+ * query, search limits, variables and the view start date. These are
+ * written as one block whose size is recorded for the session size
+ * statistics. The current view, search results, event dates and other
+ * caches are transient and are rebuilt on the next request, which sees
+ * the refresh flag set.</p>
+ *
  * @author Mike Douglass   douglm  rpi.edu
  */
 public class BwModuleState implements Serializable {
   private final String moduleName;
 
-  private boolean refresh;
+  private transient boolean refresh;
+
+  private transient PresentationState ps;
 
-  private PresentationState ps;
+  private transient XSLTConfig xsltConfig;
 
-  private XSLTConfig xsltConfig;
+  /* The stylesheet the filter resolved for xsltConfig */
+  private transient String xsltUrl;
+
+  /* Sizes of serialized states - recorded by writeObject */
+  private static final AtomicLong sizeSamples = new AtomicLong();
+  private static final AtomicLong sizeTotal = new AtomicLong();
+  private static final AtomicLong sizeMax = new AtomicLong();
 
   private static final int maxAppVars = 50; // Stop screwing around.
 
   //private EventState eventState;
 
-  Map<String, String> vars = new HashMap<>();
-  private TimeDateComponents viewStartDate;
-  private CalendarInfo calInfo;
-  private EventDates eventDates;
+  transient Map<String, String> vars = new HashMap<>();
+  private transient TimeDateComponents viewStartDate;
+  private transient CalendarInfo calInfo;
+  private transient EventDates eventDates;
+
+  /* Saved viewStartDate - set on restore, used once */
+  private transient SavedDate savedViewStartDate;
 
   /* ............................................................
    *                       View period
    * ............................................................ */
 
   // ENUM
-  private String selectionType = BedeworkDefs.selectionTypeView;
+  private transient String selectionType = BedeworkDefs.selectionTypeView;
 
-  private String date;
+  private transient String date;
 
-  private String viewType; /* month etc */
+  private transient String viewType; /* month etc */
 
   /** Index of the current view type
    */
-  private int curViewPeriod = -1;
+  private transient int curViewPeriod = -1;
 
   /** MyCalendarVO version of the start date
    */
-  private CalendarFormatter viewMcDate;
+  private transient CalendarFormatter viewMcDate;
 
   /** The current view with user selected date (day, week, month etc)
    */
-  private TimeView curTimeView;
+  private transient TimeView curTimeView;
 
   /* ............................................................
    *                   Searches
    * ............................................................ */
 
-  private String query;
+  private transient String query;
 
-  private SearchResult searchResult;
+  private transient SearchResult searchResult;
 
-  private List<SearchResultEntry> searchResultEntries;
+  /* Current page and read-ahead of the search result */
+  private transient SearchResultWindow searchResultWindow;
 
-  private String searchLimits = "fromToday";
+  private transient String searchLimits = "fromToday";
 
   public BwModuleState(final String moduleName) {
     this.moduleName = moduleName;
@@ -137,6 +167,40 @@ public class BwModuleState implements Serializable {
     return xsltConfig;
   }
 
+  /** Set with the XSLT configuration for each request.
+   *
+   * @param val url of the stylesheet ConfiguredXSLTFilter resolved
+   *            for the current XSLT configuration
+   */
+  public void setXsltUrl(final String val) {
+    xsltUrl = val;
+  }
+
+  /**
+   * @return url of the resolved stylesheet - may be null
+   */
+  public String getXsltUrl() {
+    return xsltUrl;
+  }
+
+  /** The compiled stylesheet selected by the current XSLT
+   * configuration. It is shared with every session using the same
+   * stylesheet.
+   *
+   * @return compiled stylesheet - null if there is no configuration
+   *         or resolved stylesheet
+   * @throws TransformerException on compile errors
+   */
+  public Templates getTemplates() throws TransformerException {
+    if ((xsltConfig == null) || (xsltConfig.cfg == null) ||
+            (xsltUrl == null)) {
+      return null;
+    }
+
+    return XsltTemplatesCache.getInstance().getTemplates(
+            XsltTemplatesCache.makeKey(xsltConfig, xsltUrl));
+  }
+
   /**
    * @return String
    */
@@ -155,6 +219,10 @@ public class BwModuleState implements Serializable {
    * @return calendar info
    */
   public CalendarInfo getCalInfo() {
+    if (calInfo == null) {
+      calInfo = CalendarInfo.getInstance();
+    }
+
     return calInfo;
   }
 
@@ -178,10 +246,38 @@ public class BwModuleState implements Serializable {
    * @return time date
    */
   public TimeDateComponents getViewStartDate() {
-    if (viewStartDate == null) {
-      viewStartDate = getEventDates().getNowTimeComponents();
+    if (viewStartDate != null) {
+      return viewStartDate;
     }
 
+    final SavedDate saved = savedViewStartDate;
+    TimeDateComponents tdc = null;
+
+    if (eventDates != null) {
+      tdc = eventDates.getNowTimeComponents().getEntity();
+    }
+
+    if (tdc == null) {
+      /* Restored before assignEventDates was called */
+      if (saved != null) {
+        tdc = new TimeDateComponents(getCalInfo(),
+                                     saved.minIncrement(),
+                                     saved.hour24());
+      } else {
+        tdc = new TimeDateComponents(getCalInfo(), 1, false);
+      }
+
+      tdc.setNow();
+    }
+
+    if (saved != null) {
+      // Restored from a serialized state
+      saved.restore(tdc);
+      savedViewStartDate = null;
+    }
+
+    viewStartDate = tdc;
+
     return viewStartDate;
   }
 
@@ -235,9 +331,9 @@ public class BwModuleState implements Serializable {
     return curTimeView;
   }
   
-  private TimeView.CalFmt curDayFmt;
-  private TimeView.CalFmt firstDayFmt;
-  private TimeView.CalFmt lastDayFmt;
+  private transient TimeView.CalFmt curDayFmt;
+  private transient TimeView.CalFmt firstDayFmt;
+  private transient TimeView.CalFmt lastDayFmt;
   
   public TimeView.CalFmt getCurDayFmt() {
     return curDayFmt;
@@ -338,6 +434,7 @@ public class BwModuleState implements Serializable {
    */
   public void setSearchResult(final SearchResult val) {
     searchResult = val;
+    searchResultWindow = null;
   }
 
   /**
@@ -348,6 +445,38 @@ public class BwModuleState implements Serializable {
     return searchResult;
   }
 
+  /** Set the windowed holder for the entries of the current search
+   * result. Only the current page and a small read-ahead are held in
+   * the session.
+   *
+   * @param val the window - null to discard
+   */
+  public void setSearchResultWindow(final SearchResultWindow val) {
+    searchResultWindow = val;
+  }
+
+  /**
+   *
+   * @return window onto the search result entries or null
+   */
+  public SearchResultWindow getSearchResultWindow() {
+    return searchResultWindow;
+  }
+
+  /** Entries are fetched by the action which moves through the
+   * result, never by this getter.
+   *
+   * @return entries for the current page of the search result -
+   *         empty if no search or the page has not been fetched.
+   */
+  public List<SearchResultEntry> getSearchResultEntries() {
+    if (searchResultWindow == null) {
+      return Collections.emptyList();
+    }
+
+    return searchResultWindow.getCurrentRetained();
+  }
+
   /** Set query from last search
    *
    * @param val the query
@@ -413,6 +542,156 @@ public class BwModuleState implements Serializable {
     return date;
   }
 
+  /* ....................................................................
+   *                   Serialization
+   * .................................................................... */
+
+  /**
+   * @return number of states serialized
+   */
+  public static long getSerializedSizeSamples() {
+    return sizeSamples.get();
+  }
+
+  /**
+   * @return average size in bytes of the serialized states
+   */
+  public static long getSerializedSizeAverage() {
+    final long n = sizeSamples.get();
+    if (n == 0) {
+      return 0;
+    }
+
+    return sizeTotal.get() / n;
+  }
+
+  /**
+   * @return maximum size in bytes of the serialized states
+   */
+  public static long getSerializedSizeMax() {
+    return sizeMax.get();
+  }
+
+  /* The view start date with the settings it was created with */
+  private record SavedDate(String dateTime,
+                           String tzid,
+                           boolean floating,
+                           boolean storeUTC,
+                           boolean hour24,
+                           int minIncrement) implements Serializable {
+    static SavedDate make(final TimeDateComponents tdc,
+                          final EventDates ed) {
+      final StringBuilder sb = new StringBuilder();
+
+      sb.append(String.format("%04d%02d%02d",
+                              tdc.getYear(),
+                              tdc.getMonth(),
+                              tdc.getDay()));
+
+      if (!tdc.getDateOnly()) {
+        sb.append(String.format("T%02d%02d00",
+                                tdc.get24Hourval(),
+                                tdc.getMinute()));
+      }
+
+      final boolean hour24;
+      final int minIncrement;
+
+      if (ed != null) {
+        hour24 = ed.getHour24();
+        minIncrement = ed.getMinIncrement();
+      } else {
+        hour24 = false;
+        minIncrement = 1;
+      }
+
+      return new SavedDate(sb.toString(),
+                           tdc.getTzid(),
+                           tdc.getFloating(),
+                           tdc.getStoreUTC(),
+                           hour24,
+                           minIncrement);
+    }
+
+    void restore(final TimeDateComponents tdc) {
+      // setDateTime resets the zone and flags
+      tdc.setDateTime(dateTime);
+      tdc.setTzid(tzid);
+      tdc.setFloating(floating);
+      tdc.setStoreUTC(storeUTC);
+    }
+  }
+
+  /* Everything written when serialized */
+  private record SavedKeys(PresentationState ps,
+                           XSLTConfig xsltConfig,
+                           HashMap<String, String> vars,
+                           SavedDate viewStartDate,
+                           String selectionType,
+                           String date,
+                           String viewType,
+                           int curViewPeriod,
+                           String query,
+                           String searchLimits) implements Serializable {
+  }
+
+  private void writeObject(final ObjectOutputStream out)
+          throws IOException {
+    out.defaultWriteObject();
+
+    SavedDate sd = savedViewStartDate;
+    if (viewStartDate != null) {
+      sd = SavedDate.make(viewStartDate, eventDates);
+    }
+
+    final var keys = new SavedKeys(ps, xsltConfig, new HashMap<>(vars),
+                                   sd, selectionType, date, viewType,
+                                   curViewPeriod, query, searchLimits);
+
+    /* Written as one block so we know how big the state is */
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+      oos.writeObject(keys);
+    }
+
+    final int size = bytes.size();
+
+    out.writeInt(size);
+    bytes.writeTo(out);
+
+    sizeSamples.incrementAndGet();
+    sizeTotal.addAndGet(size);
+    sizeMax.accumulateAndGet(size, Math::max);
+  }
+
+  private void readObject(final ObjectInputStream in)
+          throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+
+    final byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+
+    final SavedKeys keys;
+    try (final ObjectInputStream ois =
+                 new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      keys = (SavedKeys)ois.readObject();
+    }
+
+    ps = keys.ps();
+    xsltConfig = keys.xsltConfig();
+    vars = keys.vars();
+    savedViewStartDate = keys.viewStartDate();
+    selectionType = keys.selectionType();
+    date = keys.date();
+    viewType = keys.viewType();
+    curViewPeriod = keys.curViewPeriod();
+    query = keys.query();
+    searchLimits = keys.searchLimits();
+
+    /* Everything else is rebuilt on the next request */
+    refresh = true;
+  }
+
   /* later
   public EventState getEventState() {
     if (eventState == null){
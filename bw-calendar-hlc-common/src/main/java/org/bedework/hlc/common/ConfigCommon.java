@@ -191,6 +191,46 @@ public interface ConfigCommon extends Serializable {
    */
   boolean getShowYearData();
 
+  /** Maximum number of events for which a view will hold full
+   * formatted events. Above this the view switches to per-day counts
+   * and expands days only on request. Zero or less for no limit.
+   * Applied to views created by TimeView.make with a day expander.
+   *
+   * @param val
+   */
+  void setMaxViewEvents(int val);
+
+  /**
+   * @return int
+   */
+  int getMaxViewEvents();
+
+  /** Maximum number of events returned for a single day of a view.
+   * Zero or less for no limit.
+   *
+   * @param val
+   */
+  void setMaxDayEvents(int val);
+
+  /**
+   * @return int
+   */
+  int getMaxDayEvents();
+
+  /** True if views should be given recurring masters and overrides
+   * rather than expanded instances. Instances are then generated in
+   * the view only for the days displayed. Applied by TimeView.make
+   * when it is given an expander.
+   *
+   * @param val
+   */
+  void setLazyRecurrences(boolean val);
+
+  /**
+   * @return boolean
+   */
+  boolean getLazyRecurrences();
+
   /** Where the browser finds css and other resources.
    *
    * @param val
@@ -233,6 +273,41 @@ public interface ConfigCommon extends Serializable {
    */
   int getRefreshInterval();
 
+  /** Locales to prepare at startup, e.g. "en_US,fr_FR". Null or
+   * empty for none.
+   *
+   * @param val comma separated list
+   */
+  void setWarmupLocales(String val);
+
+  /**
+   * @return String
+   */
+  String getWarmupLocales();
+
+  /** Timezones to prepare at startup, e.g. "America/New_York".
+   *
+   * @param val comma separated list
+   */
+  void setWarmupTimezones(String val);
+
+  /**
+   * @return String
+   */
+  String getWarmupTimezones();
+
+  /** Number of times each view type is built at startup for each
+   * locale. Zero for none.
+   *
+   * @param val
+   */
+  void setWarmupViews(int val);
+
+  /**
+   * @return int
+   */
+  int getWarmupViews();
+
   /**
    * @param val
    */
@@ -509,6 +509,14 @@ public class DateTimeFormatter
       }
     }
 
+    /** Build the formatters for a locale ahead of use.
+     *
+     * @param loc the locale
+     */
+    public static void prepare(final Locale loc) {
+      getFormatters(loc);
+    }
+
     private Formatters getFormatters() {
       return getFormatters(BwLocale.getLocale());
     }
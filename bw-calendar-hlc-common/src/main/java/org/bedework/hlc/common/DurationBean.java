@@ -21,9 +21,15 @@ package org.bedework.hlc.common;
 
 import org.bedework.calfacade.BwDuration;
 
+import java.util.Map;
+
 /** Class representing a duration for web applications. This takes String values
  * for the properties and validates them.
  *
+ * <p>The shared read-only instances of the common durations only speed up
+ * decoding: the values returned by makeDurationBean are always new mutable
+ * copies.</p>
+ *
  * @author Mike Douglass   douglm@rpi.edu
  *  @version 1.0
  */
@@ -33,6 +39,24 @@ public class DurationBean extends BwDuration {
   /** */
   public static final String dayTimeDuration = "daytime";
 
+  /** Shared, immutable values for the common durations */
+  public static final DurationBean fifteenMinutes = frozen("PT15M");
+  /** */
+  public static final DurationBean thirtyMinutes = frozen("PT30M");
+  /** */
+  public static final DurationBean oneHour = frozen("PT1H");
+  /** */
+  public static final DurationBean oneDay = frozen("P1D");
+  /** */
+  public static final DurationBean oneWeek = frozen("P1W");
+
+  private static final Map<String, DurationBean> common =
+          Map.of("PT15M", fifteenMinutes,
+                 "PT30M", thirtyMinutes,
+                 "PT1H", oneHour,
+                 "P1D", oneDay,
+                 "P1W", oneWeek);
+
   /** One of the above */
   private String type;
 
@@ -174,18 +198,69 @@ public class DurationBean extends BwDuration {
     return valueError;
   }
 
+  /** Compare numerically with the given value. Weeks are compared as
+   * 7 days. Days and times are compared separately as a day is not
+   * always 24 hours.
+   *
+   * @param val ISO duration - may be null
+   * @return true if the same duration
+   */
+  public boolean sameAs(final String val) {
+    if (val == null) {
+      return false;
+    }
+
+    final DurationBean db = common.get(val);
+    if (db != null) {
+      return sameAs(db);
+    }
+
+    final DurationBean other = new DurationBean();
+    if (!parse(val, other)) {
+      populate(other, val);
+    }
+
+    return sameAs(other);
+  }
+
+  /** Compare numerically with the given value.
+   *
+   * @param val duration - may be null
+   * @return true if the same duration
+   */
+  public boolean sameAs(final BwDuration val) {
+    if (val == null) {
+      return false;
+    }
+
+    return (getTotalDays(this) == getTotalDays(val)) &&
+            (getTotalSeconds(this) == getTotalSeconds(val));
+  }
+
   /* ====================================================================
    *                        Convenience methods
    * ==================================================================== */
 
   /**
-   * @param val of bean
-   * @return duration bean
+   * @param val of bean - may be null
+   * @return duration bean - a new mutable object
    */
   public static DurationBean makeDurationBean(final String val) {
     final DurationBean db = new DurationBean();
 
-    populate(db, val);
+    /* Map.of does not allow a null key - events may have no duration */
+    final DurationBean c;
+    if (val == null) {
+      c = null;
+    } else {
+      c = common.get(val);
+    }
+
+    if (c != null) {
+      copy(c, db);
+    } else if (!parse(val, db)) {
+      populate(db, val);
+    }
 
     if (db.getWeeks() != 0) {
       db.setType(weekDuration);
@@ -197,29 +272,136 @@ public class DurationBean extends BwDuration {
   }
 
   /**
-   * @return one hour
+   * @return one hour - a new mutable object. Use oneHour for a
+   *         shared read-only value.
    */
   public static DurationBean makeOneHour() {
     final DurationBean db = new DurationBean();
 
+    copy(oneHour, db);
     db.setType(dayTimeDuration);
-    db.setHours(1);
 
     return db;
   }
 
   /**
-   * @return one day
+   * @return one day - a new mutable object. Use oneDay for a
+   *         shared read-only value.
    */
   public static DurationBean makeOneDay() {
     final DurationBean db = new DurationBean();
 
+    copy(oneDay, db);
     db.setType(dayTimeDuration);
-    db.setDays(1);
 
     return db;
   }
 
+  /* ====================================================================
+   *                        Codec
+   * ==================================================================== */
+
+  /** Parse the usual forms of an ISO 8601 / RFC 5545 duration without
+   * intermediate objects:
+   * <pre>
+   *   [+|-]PnW
+   *   [+|-]P[nD][T[nH][nM][nS]]
+   * </pre>
+   *
+   * @param val to parse
+   * @param db to populate
+   * @return false if the value was not in a recognised form.
+   */
+  static boolean parse(final String val,
+                       final BwDuration db) {
+    if (val == null) {
+      return false;
+    }
+
+    final int len = val.length();
+    int pos = 0;
+    boolean neg = false;
+
+    if ((pos < len) &&
+            ((val.charAt(pos) == '-') || (val.charAt(pos) == '+'))) {
+      neg = val.charAt(pos) == '-';
+      pos++;
+    }
+
+    if ((pos >= len) || (val.charAt(pos) != 'P')) {
+      return false;
+    }
+    pos++;
+
+    int weeks = 0;
+    int days = 0;
+    int hours = 0;
+    int minutes = 0;
+    int seconds = 0;
+    boolean inTime = false;
+    boolean any = false;
+    boolean anyTime = false;
+
+    while (pos < len) {
+      char c = val.charAt(pos);
+
+      if (c == 'T') {
+        if (inTime) {
+          return false;
+        }
+        inTime = true;
+        pos++;
+        continue;
+      }
+
+      int n = 0;
+      final int start = pos;
+      while ((pos < len) && ((c = val.charAt(pos)) >= '0') && (c <= '9')) {
+        n = n * 10 + (c - '0');
+        pos++;
+      }
+
+      if ((pos == start) || (pos >= len) || (pos - start > 9)) {
+        return false;
+      }
+
+      c = val.charAt(pos);
+      pos++;
+
+      if (!inTime && (c == 'W')) {
+        weeks = n;
+      } else if (!inTime && (c == 'D')) {
+        days = n;
+      } else if (inTime && (c == 'H')) {
+        hours = n;
+      } else if (inTime && (c == 'M')) {
+        minutes = n;
+      } else if (inTime && (c == 'S')) {
+        seconds = n;
+      } else {
+        return false;
+      }
+
+      any = true;
+      anyTime = inTime;
+    }
+
+    /* A T must be followed by at least one time value */
+    if (!any || (inTime && !anyTime) || ((weeks != 0) &&
+            ((days | hours | minutes | seconds) != 0))) {
+      return false;
+    }
+
+    db.setWeeks(weeks);
+    db.setDays(days);
+    db.setHours(hours);
+    db.setMinutes(minutes);
+    db.setSeconds(seconds);
+    db.setNegative(neg);
+
+    return true;
+  }
+
   /* ====================================================================
    *                        Private methods
    * ==================================================================== */
@@ -241,5 +423,105 @@ public class DurationBean extends BwDuration {
       return false;
     }
   }
-}
 
+  private static DurationBean frozen(final String val) {
+    final Frozen f = new Frozen();
+
+    parse(val, f);
+
+    if (f.getWeeks() != 0) {
+      f.setType(weekDuration);
+    } else {
+      f.setType(dayTimeDuration);
+    }
+
+    f.frozen = true;
+
+    return f;
+  }
+
+  private static void copy(final BwDuration from,
+                           final DurationBean to) {
+    to.setWeeks(from.getWeeks());
+    to.setDays(from.getDays());
+    to.setHours(from.getHours());
+    to.setMinutes(from.getMinutes());
+    to.setSeconds(from.getSeconds());
+    to.setNegative(from.getNegative());
+  }
+
+  private static long getTotalDays(final BwDuration val) {
+    final long d = val.getWeeks() * 7L + val.getDays();
+
+    if (val.getNegative()) {
+      return -d;
+    }
+
+    return d;
+  }
+
+  private static long getTotalSeconds(final BwDuration val) {
+    final long s = val.getHours() * 3600L +
+            val.getMinutes() * 60L + val.getSeconds();
+
+    if (val.getNegative()) {
+      return -s;
+    }
+
+    return s;
+  }
+
+  /* A read-only bean for the shared values */
+  private static class Frozen extends DurationBean {
+    private boolean frozen;
+
+    private void check() {
+      if (frozen) {
+        throw new UnsupportedOperationException(
+                "Shared duration may not be modified");
+      }
+    }
+
+    @Override
+    public void setType(final String val) {
+      check();
+      super.setType(val);
+    }
+
+    @Override
+    public void setWeeks(final int val) {
+      check();
+      super.setWeeks(val);
+    }
+
+    @Override
+    public void setDays(final int val) {
+      check();
+      super.setDays(val);
+    }
+
+    @Override
+    public void setHours(final int val) {
+      check();
+      super.setHours(val);
+    }
+
+    @Override
+    public void setMinutes(final int val) {
+      check();
+      super.setMinutes(val);
+    }
+
+    @Override
+    public void setSeconds(final int val) {
+      check();
+      super.setSeconds(val);
+    }
+
+    @Override
+    public void setNegative(final boolean val) {
+      check();
+      super.setNegative(val);
+    }
+  }
+}
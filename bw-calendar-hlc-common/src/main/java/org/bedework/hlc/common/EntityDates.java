@@ -74,6 +74,13 @@ public class EntityDates implements Serializable {
     return hour24;
   }
 
+  /**
+   * @return minute increment
+   */
+  public int getMinIncrement() {
+    return minIncrement;
+  }
+
   /**
    * @return  TimeDateComponents for labels
    */
@@ -23,6 +23,7 @@ import org.bedework.base.ToString;
 import org.bedework.base.response.GetEntityResponse;
 import org.bedework.base.response.Response;
 import org.bedework.calfacade.BwDateTime;
+import org.bedework.calfacade.BwDuration;
 import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.base.BwTimeRange;
 import org.bedework.calfacade.base.StartEndComponent;
@@ -32,7 +33,6 @@ import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.util.ChangeTable;
 import org.bedework.util.calendar.IcalDefs;
 import org.bedework.util.calendar.PropertyIndex.PropertyInfoIndex;
-import org.bedework.util.misc.Util;
 import org.bedework.util.timezones.DateTimeUtil;
 
 import static org.bedework.base.response.Response.Status.exists;
@@ -158,35 +158,11 @@ public class EventDates extends EntityDates {
    *              exists if nothing changed.
    */
   public Response<?> updateEvent(final EventInfo ei) {
-    final BwEvent ev = ei.getEvent();
-    final ChangeTable changes = ei.getChangeset(principalHref);
-    boolean updated = false;
-
-    final PropertyInfoIndex endPi;
-    if (ev.getEntityType() != IcalDefs.entityTypeTodo) {
-      endPi = PropertyInfoIndex.DTEND;
-    } else {
-      endPi = PropertyInfoIndex.DUE;
-    }
-
     try {
-      /* Event initial values */
-      final BwDateTime esdt = ev.getDtstart();
-      BwDateTime eedt = ev.getDtend();
-      String edur = ev.getDuration();
-      final char evEndtype = ev.getEndType();
-
       final BwDateTime start = getStartDate().getDateTime();
 
       // XXX A todo can have no date and time
 
-      if ((esdt == null) || !esdt.equals(start)) {
-        ev.setDtstart(start);
-        updated = true;
-      }
-
-      ev.setNoStart(false);
-
       final TimeDateComponents eTdc = getEndDate();
       eTdc.setDateOnly(start.getDateType());
       BwDateTime end = eTdc.getDateTime();
@@ -199,88 +175,305 @@ public class EventDates extends EntityDates {
 
       final char endtype = getEndType().charAt(0);
 
-      if (evEndtype != endtype) {
-        ev.setEndType(endtype);
-        updated = true;
+      if (endtype == StartEndComponent.endTypeDate) {
+        if (end.getDateType()) {
+          // Adjust forward 1 day
+          end = end.getNextDay();
+        }
       }
 
+      return applyDates(ei, start, end, endtype, getDuration(), false);
+    } catch (final Throwable t) {
+      err.emit(t);
+      return new Response<>().error(validationError);
+    }
+  }
+
+  /* Set the dates of the event and flag the changes. Used by
+   * updateEvent and shiftEvents. A date only start with a duration end
+   * type needs a whole, non-zero number of days - updateEvent emits
+   * the error for the form as it always has.
+   *
+   * Only a shift checks the end is not before the start: an edit with
+   * a duration end type may leave a stale value in the end date.
+   *
+   * end is the value to store - a date only end has already been moved
+   * forward. A null duration keeps the event's duration.
+   */
+  private Response<?> applyDates(final EventInfo ei,
+                                 final BwDateTime start,
+                                 BwDateTime end,
+                                 final char endtype,
+                                 final BwDuration duration,
+                                 final boolean shifting) {
+    final BwEvent ev = ei.getEvent();
+
+    final PropertyInfoIndex endPi;
+    if (ev.getEntityType() != IcalDefs.entityTypeTodo) {
+      endPi = PropertyInfoIndex.DTEND;
+    } else {
+      endPi = PropertyInfoIndex.DUE;
+    }
+
+    /* Event initial values */
+    final BwDateTime esdt = ev.getDtstart();
+    BwDateTime eedt = ev.getDtend();
+    String edur = ev.getDuration();
+    final char evEndtype = ev.getEndType();
+
+    String dur = edur;
+
+    if (duration != null) {
+      BwDuration d = duration;
+
       /* If it's a date type start - truncate the duration to days */
       if (start.getDateType() &&
-          (ev.getEndType() == StartEndComponent.endTypeDuration)) {
-        getDuration().setHours(0);
-        getDuration().setMinutes(0);
-        getDuration().setSeconds(0);
-
-        if (getDuration().isZero()) {
-          err.emit(ValidationError.invalidDuration);
-          return new Response<>().error(validationError);
+              (endtype == StartEndComponent.endTypeDuration)) {
+        d = wholeDays(duration);
+
+        if (d.isZero()) {
+          if (!shifting) {
+            err.emit(ValidationError.invalidDuration);
+            return new Response<>().error(validationError);
+          }
+
+          return invalid("Duration of a date only event is less than a day");
         }
       }
 
-      if (ev.getEndType() == StartEndComponent.endTypeDate) {
-        if (end.getDateType()) {
-          // Adjust forward 1 day
-          end = end.getNextDay();
-        }
+      dur = d.toString();
+    }
+
+    if (shifting && (end != null) && (end.compareTo(start) < 0)) {
+      return invalid("End is before start");
+    }
+
+    final ChangeTable changes = ei.getChangeset(principalHref);
+    boolean updated = false;
+
+    if ((esdt == null) || !esdt.equals(start)) {
+      ev.setDtstart(start);
+      changes.changed(PropertyInfoIndex.DTSTART, esdt, start);
+      updated = true;
+    }
+
+    ev.setNoStart(false);
+
+    if (evEndtype != endtype) {
+      ev.setEndType(endtype);
+      updated = true;
+    }
+
+    if ((eedt == null) || !eedt.equals(end)) {
+      ev.setDtend(end);
+      updated = true;
+    }
+
+    final boolean durChanged = durationChanged(edur, dur);
+
+    if (durChanged) {
+      ev.setDuration(dur);
+      updated = true;
+    }
+
+    /* If we switched from date to duration make new date null and old
+     * duration null.
+     *
+     * If we switched from duration to date make old date null and new
+     * duration null.
+     *
+     * otherwise if the endtype is duration flag a duration change
+     *
+     * else flag an end date change
+     */
+
+    if (evEndtype != endtype) {
+      if (endtype == StartEndComponent.endTypeDuration) {
+        end = null;
+        edur = null;
+      } else {
+        eedt = null;
+        dur = null;
       }
 
-      if ((eedt == null) || !eedt.equals(end)) {
-        ev.setDtend(end);
-        updated = true;
+      changes.changed(endPi, eedt, end);
+      changes.changed(PropertyInfoIndex.DURATION, edur, dur);
+    } else if (endtype == StartEndComponent.endTypeDuration) {
+      if (durChanged) {
+        changes.changed(PropertyInfoIndex.DURATION, edur, dur);
       }
+    } else if ((eedt == null) || !eedt.equals(end)) {
+      changes.changed(endPi, eedt, end);
+    }
 
-      String dur = getDuration().toString();
+    if (!updated) {
+      return new Response<>().setStatus(exists);
+    }
 
-      if ((edur == null) || !edur.equals(dur)) {
-        ev.setDuration(dur);
-        updated = true;
-      }
+    return new Response<>();
+  }
+
+  /* Compared numerically so "P1W" and "P7D" are not a change */
+  private static boolean durationChanged(final String edur,
+                                         final String dur) {
+    if ((edur == null) || (dur == null)) {
+      return (edur != null) || (dur != null);
+    }
+
+    return !DurationBean.makeDurationBean(dur).sameAs(edur);
+  }
+
+  private static BwDuration wholeDays(final BwDuration val) {
+    final BwDuration res = new BwDuration();
 
-      /* Flag any changes */
-      if ((esdt == null) || !esdt.equals(start)) {
-        changes.changed(PropertyInfoIndex.DTSTART,
-                        esdt, start);
+    res.setNegative(val.getNegative());
+    res.setWeeks(val.getWeeks());
+    res.setDays(val.getDays());
+
+    return res;
+  }
+
+  private static Response<?> invalid(final String msg) {
+    final Response<?> resp = new Response<>().error(validationError);
+    resp.setMessage(msg);
+
+    return resp;
+  }
+
+  /** A transform applied to the dates of many events by shiftEvents.
+   * The start is moved by startOffset. If newDuration is set the end
+   * is recalculated from the new start, otherwise it is moved by the
+   * same offset.
+   */
+  public static class DateShift {
+    private final BwDuration startOffset;
+    private final BwDuration newDuration;
+
+    /**
+     * @param startOffset amount to move the start - may be negative
+     * @param newDuration null to keep the existing duration
+     */
+    public DateShift(final BwDuration startOffset,
+                     final BwDuration newDuration) {
+      this.startOffset = startOffset;
+      this.newDuration = newDuration;
+    }
+
+    /**
+     * @param startOffset ISO duration e.g. "P7D" or "-PT1H"
+     * @param newDuration ISO duration or null to keep
+     * @return a shift
+     */
+    public static DateShift make(final String startOffset,
+                                 final String newDuration) {
+      final BwDuration nd;
+      if (newDuration == null) {
+        nd = null;
+      } else {
+        nd = DurationBean.makeDurationBean(newDuration);
       }
 
-      /* If we switched from date to duration make new date null and old
-       * duration null.
-       *
-       * If we switched from duration to date make old date null and new
-       * duration null.
-       *
-       * otherwise if the endtype is duration flag a duration change
-       *
-       * else flag an end date change
-       */
-
-      if (evEndtype != endtype) {
-        if (endtype == StartEndComponent.endTypeDuration) {
-          end = null;
-          edur = null;
-        } else {
-          eedt = null;
-          dur = null;
-        }
+      return new DateShift(DurationBean.makeDurationBean(startOffset),
+                           nd);
+    }
+  }
 
-        changes.changed(endPi, eedt, end);
-        changes.changed(PropertyInfoIndex.DURATION, edur, dur);
-      } else if (endtype == StartEndComponent.endTypeDuration) {
-        if (Util.cmpObjval(edur, dur) != 0) {
-          changes.changed(PropertyInfoIndex.DURATION, edur, dur);
-        }
-      } else if (!eedt.equals(end)) {
-        changes.changed(endPi, eedt, end);
+  /** Called by shiftEvents with the outcome for each event.
+   */
+  public interface ShiftResultHandler {
+    /**
+     * @param ei the event
+     * @param resp ok if changed, exists if nothing changed or error
+     */
+    void result(EventInfo ei, Response<?> resp);
+  }
+
+  /* The shift as applied to one kind of date. Date only values are
+   * moved by whole days.
+   */
+  private record ShiftRule(BwDuration startOffset,
+                           BwDuration newDuration) {
+  }
+
+  /** Apply the same date transform to many events. The transform is
+   * prepared once for timed and once for date only values. The new
+   * dates are checked as they are by updateEvent and the end may not
+   * be before the start. The result for each event is handed to the
+   * handler as it is produced rather than being accumulated.
+   *
+   * @param eis the events to update
+   * @param shift the transform
+   * @param handler receives the result for each event
+   * @return number of events changed
+   */
+  public int shiftEvents(final Iterable<EventInfo> eis,
+                         final DateShift shift,
+                         final ShiftResultHandler handler) {
+    final ShiftRule timed = makeRule(false, shift);
+    final ShiftRule dateOnly = makeRule(true, shift);
+    int changed = 0;
+
+    for (final EventInfo ei: eis) {
+      final Response<?> resp = shiftEvent(ei, timed, dateOnly);
+      if (resp.isOk()) {
+        changed++;
       }
 
-      if (!updated) {
+      handler.result(ei, resp);
+    }
+
+    return changed;
+  }
+
+  private Response<?> shiftEvent(final EventInfo ei,
+                                 final ShiftRule timed,
+                                 final ShiftRule dateOnly) {
+    try {
+      final BwEvent ev = ei.getEvent();
+      final BwDateTime esdt = ev.getDtstart();
+      final BwDateTime eedt = ev.getDtend();
+
+      if ((esdt == null) || ev.getNoStart()) {
         return new Response<>().setStatus(exists);
       }
 
-      return new Response<>();
+      final ShiftRule rule;
+      if (esdt.getDateType()) {
+        rule = dateOnly;
+      } else {
+        rule = timed;
+      }
+
+      final BwDateTime start = esdt.addDuration(rule.startOffset());
+      final BwDateTime end;
+
+      if (rule.newDuration() != null) {
+        end = start.addDuration(rule.newDuration());
+      } else if (eedt == null) {
+        end = start;
+      } else {
+        end = eedt.addDuration(rule.startOffset());
+      }
+
+      return applyDates(ei, start, end, ev.getEndType(),
+                        rule.newDuration(), true);
     } catch (final Throwable t) {
-      err.emit(t);
-      return new Response<>().error(validationError);
+      return new Response<>().error(t);
+    }
+  }
+
+  private static ShiftRule makeRule(final boolean dateOnly,
+                                    final DateShift shift) {
+    if (!dateOnly) {
+      return new ShiftRule(shift.startOffset, shift.newDuration);
     }
+
+    BwDuration nd = null;
+    if (shift.newDuration != null) {
+      nd = wholeDays(shift.newDuration);
+    }
+
+    return new ShiftRule(wholeDays(shift.startOffset), nd);
   }
 
   /** Return an object representing an events start date.
@@ -26,6 +26,7 @@ import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calfacade.util.BwDateTimeUtil;
 import org.bedework.convert.EventTimeZonesRegistry;
 import org.bedework.convert.IcalTranslator;
+import org.bedework.hlc.common.metrics.JfrEvents;
 import org.bedework.llc.common.LowLevelClient;
 import org.bedework.util.logging.BwLogger;
 import org.bedework.util.logging.Logged;
@@ -68,6 +69,9 @@ public class EventFormatter extends EventTimeZonesRegistry
           eventInfo.getEvent());
     this.eventInfo = eventInfo;
 
+    final var jfr = new JfrEvents.EventFormatterCreate();
+    jfr.begin();
+
     try {
       final CurrentAccess ca = eventInfo.getCurrentAccess();
 
@@ -80,6 +84,14 @@ public class EventFormatter extends EventTimeZonesRegistry
     } catch (final Throwable t) {
       error(t);
     }
+
+    if (jfr.shouldCommit()) {
+      jfr.href = eventInfo.getEvent().getHref();
+      if (xmlAccess != null) {
+        jfr.aclLength = xmlAccess.length();
+      }
+      jfr.commit();
+    }
   }
 
   /* =========================================================
@@ -0,0 +1,427 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.BwPrincipal;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Transitive group membership held as integers. Every principal
+ * reached from a set of groups is given an id and every group a group
+ * number. For each principal the numbers of all groups it is in,
+ * directly or through other groups, are held as a sorted int array so
+ * a membership test is a hash lookup and a binary search.
+ *
+ * <p>Group to group closure is worked out with one bitset per group
+ * which is cheap as there are far fewer groups than principals.
+ * Cycles are allowed. Instances are immutable.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class GroupMembershipIndex {
+  private static volatile GroupMembershipIndex current;
+
+  private static final int[] none = new int[0];
+
+  private final Map<String, Integer> ids = new HashMap<>();
+  private final String[] hrefs;
+
+  /* principal id -> group number or -1 */
+  private final int[] groupNumber;
+
+  /* group number -> principal id */
+  private final int[] groupIds;
+
+  /* principal id -> sorted group numbers of all its groups */
+  private final int[][] groupsOf;
+
+  /* group number -> sorted principal ids of all its members */
+  private final int[][] membersOf;
+
+  private final int nestingDepth;
+
+  /* The groups passed to build */
+  private final Collection<? extends BwGroup<?>> source;
+
+  private GroupMembershipIndex(final Collection<? extends BwGroup<?>> source,
+                               final List<BwPrincipal<?>> principals,
+                               final List<int[]> directGroups,
+                               final int[] groupNumber,
+                               final int numGroups) {
+    this.source = source;
+
+    final int np = principals.size();
+
+    hrefs = new String[np];
+    for (int i = 0; i < np; i++) {
+      hrefs[i] = principals.get(i).getPrincipalRef();
+      ids.put(hrefs[i], i);
+    }
+
+    this.groupNumber = groupNumber;
+    groupIds = new int[numGroups];
+    for (int i = 0; i < np; i++) {
+      if (groupNumber[i] >= 0) {
+        groupIds[groupNumber[i]] = i;
+      }
+    }
+
+    final int words = (numGroups + 63) >>> 6;
+
+    /* Each group's own closure - its groups and theirs */
+    final long[][] groupClosure = new long[numGroups][];
+    for (int g = 0; g < numGroups; g++) {
+      final long[] bits = new long[words];
+      final ArrayDeque<Integer> work = new ArrayDeque<>();
+      work.add(g);
+
+      while (!work.isEmpty()) {
+        for (final int pg: directGroups.get(groupIds[work.poll()])) {
+          if ((bits[pg >>> 6] & (1L << pg)) == 0) {
+            bits[pg >>> 6] |= 1L << pg;
+            work.add(pg);
+          }
+        }
+      }
+
+      groupClosure[g] = bits;
+    }
+
+    nestingDepth = nestingDepth(directGroups, groupIds, groupClosure);
+
+    groupsOf = new int[np][];
+    final int[] memberCounts = new int[numGroups];
+
+    for (int i = 0; i < np; i++) {
+      final int[] direct = directGroups.get(i);
+      if (direct.length == 0) {
+        groupsOf[i] = none;
+        continue;
+      }
+
+      final long[] bits = new long[words];
+      for (final int d: direct) {
+        bits[d >>> 6] |= 1L << d;
+
+        final long[] dc = groupClosure[d];
+        for (int w = 0; w < words; w++) {
+          bits[w] |= dc[w];
+        }
+      }
+
+      groupsOf[i] = toInts(bits);
+
+      for (final int g: groupsOf[i]) {
+        memberCounts[g]++;
+      }
+    }
+
+    /* Principal ids are added in order so each array is sorted */
+    membersOf = new int[numGroups][];
+    for (int g = 0; g < numGroups; g++) {
+      membersOf[g] = new int[memberCounts[g]];
+    }
+
+    final int[] fill = new int[numGroups];
+    for (int i = 0; i < np; i++) {
+      for (final int g: groupsOf[i]) {
+        membersOf[g][fill[g]++] = i;
+      }
+    }
+  }
+
+  /** Build an index of the given groups and every principal reached
+   * through their members.
+   *
+   * @param groups the starting groups
+   * @return the index
+   */
+  public static GroupMembershipIndex build(
+          final Collection<? extends BwGroup<?>> groups) {
+    final List<BwPrincipal<?>> principals = new ArrayList<>();
+    final Map<String, Integer> ids = new HashMap<>();
+    final List<List<Integer>> direct = new ArrayList<>();
+    final List<Integer> groupNums = new ArrayList<>();
+    int numGroups = 0;
+
+    final ArrayDeque<BwGroup<?>> work = new ArrayDeque<>();
+
+    for (final var g: groups) {
+      if (!ids.containsKey(g.getPrincipalRef())) {
+        ids.put(g.getPrincipalRef(), principals.size());
+        principals.add(g);
+        direct.add(new ArrayList<>());
+        groupNums.add(numGroups++);
+        work.add(g);
+      }
+    }
+
+    while (!work.isEmpty()) {
+      final BwGroup<?> g = work.poll();
+      final int gnum = groupNums.get(ids.get(g.getPrincipalRef()));
+
+      final var ms = g.getGroupMembers();
+      if (ms == null) {
+        continue;
+      }
+
+      for (final var mbr: ms) {
+        Integer id = ids.get(mbr.getPrincipalRef());
+
+        if (id == null) {
+          id = principals.size();
+          ids.put(mbr.getPrincipalRef(), id);
+          principals.add(mbr);
+          direct.add(new ArrayList<>());
+
+          if (mbr instanceof final BwGroup<?> mg) {
+            groupNums.add(numGroups++);
+            work.add(mg);
+          } else {
+            groupNums.add(-1);
+          }
+        }
+
+        direct.get(id).add(gnum);
+      }
+    }
+
+    final List<int[]> directGroups = new ArrayList<>(direct.size());
+    for (final var d: direct) {
+      directGroups.add(d.stream().mapToInt(Integer::intValue)
+                        .distinct().toArray());
+    }
+
+    return new GroupMembershipIndex(
+            groups, principals, directGroups,
+            groupNums.stream().mapToInt(Integer::intValue).toArray(),
+            numGroups);
+  }
+
+  /**
+   * @return the index for the current admin groups - may be null
+   */
+  public static GroupMembershipIndex getCurrent() {
+    return current;
+  }
+
+  /**
+   * @param val the index for the current admin groups
+   */
+  public static void setCurrent(final GroupMembershipIndex val) {
+    current = val;
+  }
+
+  /** An index from another refresh may not know every principal
+   * in the groups - check before using the current index.
+   *
+   * @param groups collection of groups
+   * @return true if this index was built from that very collection
+   */
+  public boolean isBuiltFrom(final Collection<?> groups) {
+    return source == groups;
+  }
+
+  /**
+   * @return number of principals including groups
+   */
+  public int getNumPrincipals() {
+    return hrefs.length;
+  }
+
+  /**
+   * @return number of groups
+   */
+  public int getNumGroups() {
+    return groupIds.length;
+  }
+
+  /**
+   * @return number of groups on the longest chain of groups within
+   *         groups - groups in a cycle count as one
+   */
+  public int getNestingDepth() {
+    return nestingDepth;
+  }
+
+  /**
+   * @param href principal href
+   * @return true if indexed
+   */
+  public boolean contains(final String href) {
+    return ids.containsKey(href);
+  }
+
+  /**
+   * @param principalHref user or group
+   * @param groupHref group
+   * @return true if principalHref is in groupHref directly or through
+   *         other groups
+   */
+  public boolean isMember(final String principalHref,
+                          final String groupHref) {
+    final Integer pid = ids.get(principalHref);
+    final Integer gid = ids.get(groupHref);
+
+    if ((pid == null) || (gid == null) || (groupNumber[gid] < 0)) {
+      return false;
+    }
+
+    return Arrays.binarySearch(groupsOf[pid], groupNumber[gid]) >= 0;
+  }
+
+  /**
+   * @param principalHref user or group
+   * @return hrefs of all groups it is in - empty if not indexed
+   */
+  public List<String> getGroups(final String principalHref) {
+    final Integer pid = ids.get(principalHref);
+    final List<String> res = new ArrayList<>();
+
+    if (pid == null) {
+      return res;
+    }
+
+    for (final int g: groupsOf[pid]) {
+      res.add(hrefs[groupIds[g]]);
+    }
+
+    return res;
+  }
+
+  /**
+   * @param groupHref group
+   * @return hrefs of all members, directly or through other groups -
+   *         empty if not an indexed group
+   */
+  public List<String> getMembers(final String groupHref) {
+    final Integer gid = ids.get(groupHref);
+    final List<String> res = new ArrayList<>();
+
+    if ((gid == null) || (groupNumber[gid] < 0)) {
+      return res;
+    }
+
+    for (final int p: membersOf[groupNumber[gid]]) {
+      res.add(hrefs[p]);
+    }
+
+    return res;
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  /* A group's closure holds the closure of every group it is in, and
+   * is larger unless the two share a cycle or the containing group is
+   * in a cycle of its own. Taking groups by closure size, with groups
+   * in a cycle first on a tie, finds the level of every containing
+   * group before it is needed. The groups of a cycle are in each
+   * other's closures and get one level.
+   */
+  private static int nestingDepth(final List<int[]> directGroups,
+                                  final int[] groupIds,
+                                  final long[][] groupClosure) {
+    final int numGroups = groupIds.length;
+    final int[] keys = new int[numGroups];
+    final Integer[] order = new Integer[numGroups];
+
+    for (int g = 0; g < numGroups; g++) {
+      int size = 0;
+      for (final long w: groupClosure[g]) {
+        size += Long.bitCount(w);
+      }
+
+      keys[g] = size * 2 + (inClosure(groupClosure[g], g) ? 0 : 1);
+      order[g] = g;
+    }
+
+    Arrays.sort(order, Comparator.comparingInt(g -> keys[g]));
+
+    final int[] level = new int[numGroups];
+    int max = 0;
+
+    for (final int g: order) {
+      if (level[g] != 0) {
+        continue;
+      }
+
+      final List<Integer> cycle = new ArrayList<>();
+      cycle.add(g);
+
+      if (inClosure(groupClosure[g], g)) {
+        for (final int h: toInts(groupClosure[g])) {
+          if ((h != g) && inClosure(groupClosure[h], g)) {
+            cycle.add(h);
+          }
+        }
+      }
+
+      int lvl = 1;
+      for (final int h: cycle) {
+        for (final int pg: directGroups.get(groupIds[h])) {
+          if (!cycle.contains(pg)) {
+            lvl = Math.max(lvl, level[pg] + 1);
+          }
+        }
+      }
+
+      for (final int h: cycle) {
+        level[h] = lvl;
+      }
+
+      max = Math.max(max, lvl);
+    }
+
+    return max;
+  }
+
+  private static boolean inClosure(final long[] bits, final int g) {
+    return (bits[g >>> 6] & (1L << g)) != 0;
+  }
+
+  private static int[] toInts(final long[] bits) {
+    int n = 0;
+    for (final long w: bits) {
+      n += Long.bitCount(w);
+    }
+
+    final int[] res = new int[n];
+    int pos = 0;
+
+    for (int w = 0; w < bits.length; w++) {
+      long word = bits[w];
+      while (word != 0) {
+        res[pos++] = (w << 6) + Long.numberOfTrailingZeros(word);
+        word &= word - 1;
+      }
+    }
+
+    return res;
+  }
+}
@@ -16,4 +16,25 @@ public interface HighLevelClient extends Logged {
    * @return principal for current user or null for guest mode.
    */
   BwPrincipal<?> getCurrentPrincipal();
+
+  /** Called at the start of each request. Discards anything held
+   * for the previous request.
+   *
+   * @param conversationType from the request
+   */
+  void requestIn(int conversationType);
+
+  /** Called at the end of each request.
+   *
+   * @param conversationType from the request
+   * @param actionType from the request
+   * @param reqTimeMillis time taken
+   */
+  void requestOut(int conversationType,
+                  int actionType,
+                  long reqTimeMillis);
+
+  /** Close the low level client. The client may not be used again.
+   */
+  void close();
 }
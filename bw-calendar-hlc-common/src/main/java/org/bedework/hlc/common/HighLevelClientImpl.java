@@ -1,13 +1,33 @@
 package org.bedework.hlc.common;
 
+import org.bedework.base.exc.BedeworkException;
 import org.bedework.calfacade.BwPrincipal;
 import org.bedework.llc.common.ClientTypes.ClientType;
 import org.bedework.llc.common.LowLevelClient;
 import org.bedework.util.logging.BwLogger;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 public class HighLevelClientImpl implements HighLevelClient {
   protected final LowLevelClient cl;
 
+  /* Results of low level reads for the current request. Cleared by
+   * requestIn and requestOut.
+   */
+  private final Map<String, Object> requestCache = new HashMap<>();
+
+  /* Stands in for a null result */
+  private static final Object nullValue = new Object();
+
+  private long hits;
+  private long misses;
+
+  private static final AtomicLong totalHits = new AtomicLong();
+  private static final AtomicLong totalMisses = new AtomicLong();
+
   public HighLevelClientImpl(final LowLevelClient cl) {
     this.cl = cl;
   }
@@ -18,7 +38,7 @@ public class HighLevelClientImpl implements HighLevelClient {
 
   @Override
   public boolean isGuestMode() {
-    final var type = cl.getClientType();
+    final var type = memo("clientType", "", cl::getClientType);
     return (getCurrentPrincipal() == null) ||
             (type == ClientType.guest) ||
             (type == ClientType.publick) ||
@@ -28,7 +48,104 @@ public class HighLevelClientImpl implements HighLevelClient {
 
   @Override
   public BwPrincipal<?> getCurrentPrincipal() {
-    return cl.getCurrentPrincipal();
+    return memo("currentPrincipal", "", cl::getCurrentPrincipal);
+  }
+
+  @Override
+  public void requestIn(final int conversationType) {
+    requestCache.clear();
+    cl.requestIn(conversationType);
+  }
+
+  @Override
+  public void requestOut(final int conversationType,
+                         final int actionType,
+                         final long reqTimeMillis) {
+    requestCache.clear();
+    cl.requestOut(conversationType, actionType, reqTimeMillis);
+  }
+
+  @Override
+  public void close() {
+    requestCache.clear();
+
+    try {
+      cl.close();
+    } catch (final Throwable t) {
+      throw new BedeworkException(t);
+    }
+  }
+
+  /**
+   * @return reads satisfied from the request cache by this client
+   */
+  public long getRequestCacheHits() {
+    return hits;
+  }
+
+  /**
+   * @return reads passed to the low level client by this client
+   */
+  public long getRequestCacheMisses() {
+    return misses;
+  }
+
+  /**
+   * @return request cache hits for all clients
+   */
+  public static long getTotalRequestCacheHits() {
+    return totalHits.get();
+  }
+
+  /**
+   * @return request cache misses for all clients
+   */
+  public static long getTotalRequestCacheMisses() {
+    return totalMisses.get();
+  }
+
+  /** Return the result of a low level read made earlier in this
+   * request or make the read and remember it. Only use for reads -
+   * anything which updates should call invalidateRequestCache.
+   *
+   * @param kind type of lookup, e.g. "collection"
+   * @param key identifies the object within kind
+   * @param fetch does the read
+   * @param <V> result type
+   * @return possibly cached result
+   */
+  @SuppressWarnings("unchecked")
+  protected <V> V memo(final String kind,
+                       final String key,
+                       final Supplier<V> fetch) {
+    final String k = kind + "|" + key;
+    final Object v = requestCache.get(k);
+
+    if (v != null) {
+      hits++;
+      totalHits.incrementAndGet();
+
+      if (v == nullValue) {
+        return null;
+      }
+
+      return (V)v;
+    }
+
+    misses++;
+    totalMisses.incrementAndGet();
+
+    final V res = fetch.get();
+    requestCache.put(k, (res == null) ? nullValue : res);
+
+    return res;
+  }
+
+  /** Discard everything remembered for this request, e.g. after an
+   * update.
+   */
+  protected void invalidateRequestCache() {
+    requestCache.clear();
   }
 
   /* ==========================================================
@@ -0,0 +1,270 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.base.ToString;
+import org.bedework.calfacade.indexing.SearchResult;
+import org.bedework.calfacade.indexing.SearchResultEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/** Holds a window onto the entries of a search result. Only the
+ * current page and a small read-ahead are retained. Other pages are
+ * fetched on demand through the supplied fetcher which will usually
+ * delegate to the low level client.
+ *
+ * <p>The number of retained entries is capped whatever the page
+ * size and read-ahead requested.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class SearchResultWindow {
+  /** Default number of pages read beyond the current page */
+  public static final int defaultReadAhead = 1;
+
+  /** Maximum number of entries held at any time */
+  public static final int maxRetained = 500;
+
+  /** Fetches entries from the underlying search.
+   */
+  public interface Fetcher {
+    /**
+     * @param start 0 based index of first entry
+     * @param num maximum number to return
+     * @return entries - never null, possibly short at the end.
+     */
+    List<SearchResultEntry> fetch(int start, int num);
+  }
+
+  private final SearchResult searchResult;
+  private final Fetcher fetcher;
+  private final int pageSize;
+  private final int readAhead;
+
+  /* Index in the result of the first entry in window */
+  private int windowStart;
+
+  private List<SearchResultEntry> window = Collections.emptyList();
+
+  private int curPage;
+
+  /**
+   * @param searchResult from the search
+   * @param fetcher to retrieve entries
+   * @param pageSize number per page
+   */
+  public SearchResultWindow(final SearchResult searchResult,
+                            final Fetcher fetcher,
+                            final int pageSize) {
+    this(searchResult, fetcher, pageSize, defaultReadAhead);
+  }
+
+  /**
+   * @param searchResult from the search
+   * @param fetcher to retrieve entries
+   * @param pageSize number per page
+   * @param readAhead number of pages to fetch beyond the current one
+   */
+  public SearchResultWindow(final SearchResult searchResult,
+                            final Fetcher fetcher,
+                            final int pageSize,
+                            final int readAhead) {
+    this.searchResult = searchResult;
+    this.fetcher = fetcher;
+    this.pageSize = Math.max(1, Math.min(pageSize, maxRetained));
+    this.readAhead = Math.max(0, readAhead);
+  }
+
+  /**
+   * @return the search result
+   */
+  public SearchResult getSearchResult() {
+    return searchResult;
+  }
+
+  /**
+   * @return total number found by the search
+   */
+  public long getFound() {
+    return searchResult.getFound();
+  }
+
+  /**
+   * @return number per page
+   */
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * @return 0 based current page number
+   */
+  public int getCurPage() {
+    return curPage;
+  }
+
+  /**
+   * @return number of pages
+   */
+  public int getNumPages() {
+    return (int)((getFound() + pageSize - 1) / pageSize);
+  }
+
+  /**
+   * @return true if there is a page after the current one
+   */
+  public boolean hasNext() {
+    return curPage + 1 < getNumPages();
+  }
+
+  /**
+   * @return true if there is a page before the current one
+   */
+  public boolean hasPrev() {
+    return curPage > 0;
+  }
+
+  /**
+   * @return entries for the current page
+   */
+  public List<SearchResultEntry> getCurrent() {
+    return getPage(curPage);
+  }
+
+  /** Unlike getCurrent this never fetches so is safe to call from
+   * rendering code. Call getPage or getCurrent first.
+   *
+   * @return retained entries for the current page - empty if not
+   *         fetched
+   */
+  public List<SearchResultEntry> getCurrentRetained() {
+    final int start = curPage * pageSize;
+    final int end = (int)Math.min(start + pageSize, getFound());
+
+    if ((start < windowStart) ||
+            (end > windowStart + window.size())) {
+      return Collections.emptyList();
+    }
+
+    final int from = start - windowStart;
+    final int to = end - windowStart;
+
+    if (from >= to) {
+      return Collections.emptyList();
+    }
+
+    return Collections.unmodifiableList(window.subList(from, to));
+  }
+
+  /**
+   * @return entries for the next page - empty at the end
+   */
+  public List<SearchResultEntry> next() {
+    if (!hasNext()) {
+      return Collections.emptyList();
+    }
+
+    return getPage(curPage + 1);
+  }
+
+  /**
+   * @return entries for the previous page - empty at the start
+   */
+  public List<SearchResultEntry> prev() {
+    if (!hasPrev()) {
+      return Collections.emptyList();
+    }
+
+    return getPage(curPage - 1);
+  }
+
+  /** Make the given page current and return its entries.
+   *
+   * @param page 0 based page number
+   * @return entries - empty if out of range
+   */
+  public List<SearchResultEntry> getPage(final int page) {
+    if ((page < 0) || ((long)page * pageSize >= getFound())) {
+      return Collections.emptyList();
+    }
+
+    curPage = page;
+
+    final int start = page * pageSize;
+    final int end = (int)Math.min(start + pageSize, getFound());
+
+    if ((start < windowStart) ||
+            (end > windowStart + window.size())) {
+      fill(start);
+    }
+
+    final int from = start - windowStart;
+    final int to = Math.min(end - windowStart, window.size());
+
+    if (from >= to) {
+      return Collections.emptyList();
+    }
+
+    return Collections.unmodifiableList(window.subList(from, to));
+  }
+
+  /** Drop the retained entries. They will be fetched again as needed.
+   */
+  public void clear() {
+    window = Collections.emptyList();
+    windowStart = 0;
+  }
+
+  /**
+   * @return number of entries currently retained
+   */
+  public int getRetained() {
+    return window.size();
+  }
+
+  /* Replace the window with one starting at start */
+  private void fill(final int start) {
+    final int num = Math.min(pageSize * (1 + readAhead), maxRetained);
+
+    final List<SearchResultEntry> fetched = fetcher.fetch(start, num);
+
+    windowStart = start;
+
+    if (fetched == null) {
+      window = Collections.emptyList();
+    } else if (fetched.size() > num) {
+      window = new ArrayList<>(fetched.subList(0, num));
+    } else {
+      window = new ArrayList<>(fetched);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return new ToString(this)
+            .append("found", getFound())
+            .append("pageSize", pageSize)
+            .append("curPage", curPage)
+            .append("windowStart", windowStart)
+            .append("retained", window.size())
+            .toString();
+  }
+}
@@ -0,0 +1,232 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.locale.BwLocale;
+import org.bedework.hlc.common.views.DayBoundaries;
+import org.bedework.hlc.common.views.TimeView;
+import org.bedework.util.logging.BwLogger;
+import org.bedework.util.logging.Logged;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/** Builds the caches the first requests would otherwise pay for:
+ * CalendarInfo and date formatters for each configured locale, the
+ * timezone catalogue, timezones and their day boundaries, a few
+ * views to get getTimePeriodInfo compiled and the stylesheets given
+ * by the caller. Further steps, e.g. the admin group refresh, can be
+ * added by the caller.
+ *
+ * <p>Each step is timed and a failure in one step does not stop the
+ * others.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class StartupWarmUp implements Logged {
+  private final ConfigCommon config;
+
+  private final Map<String, Runnable> extraSteps = new LinkedHashMap<>();
+
+  private final List<XsltTemplatesCache.Key> stylesheets =
+          new ArrayList<>();
+
+  /**
+   * @param config supplies locales, timezones and number of views
+   */
+  public StartupWarmUp(final ConfigCommon config) {
+    this.config = config;
+  }
+
+  /** Stylesheets to compile into the XsltTemplatesCache. The keys
+   * carry the stylesheets as resolved by the XSLT filter.
+   *
+   * @param val keys of the stylesheets
+   * @return this
+   */
+  public StartupWarmUp addStylesheets(
+          final Collection<XsltTemplatesCache.Key> val) {
+    stylesheets.addAll(val);
+    return this;
+  }
+
+  /** Add a step to run after the standard ones.
+   *
+   * @param name for logging
+   * @param step the work
+   * @return this
+   */
+  public StartupWarmUp addStep(final String name,
+                               final Runnable step) {
+    extraSteps.put(name, step);
+    return this;
+  }
+
+  /** Run all steps.
+   *
+   * @return number of steps which failed
+   */
+  public int run() {
+    final long start = System.currentTimeMillis();
+    final List<Locale> locales = getLocales();
+    int failed = 0;
+
+    for (final Locale loc: locales) {
+      failed += step("locale " + loc, () -> {
+        CalendarInfo.getInstance(loc);
+        DateTimeFormatter.FormattedDate.prepare(loc);
+        TimeZoneCatalogue.getInstance(loc);
+      });
+    }
+
+    final int year = new CalendarFormatter(new Date()).getYear();
+
+    for (final String tzid: split(config.getWarmupTimezones())) {
+      failed += step("timezone " + tzid, () -> {
+        DayBoundaries.getInstance(tzid, year);
+        DayBoundaries.getInstance(tzid, year + 1);
+      });
+    }
+
+    final int views = config.getWarmupViews();
+    if (views > 0) {
+      for (final Locale loc: locales) {
+        failed += step("views " + loc, () -> buildViews(loc, views));
+      }
+    }
+
+    if (!stylesheets.isEmpty()) {
+      failed += step("stylesheets", () -> {
+        final int compiled =
+                XsltTemplatesCache.getInstance().warmUp(stylesheets);
+
+        if (compiled < stylesheets.size()) {
+          throw new IllegalStateException(
+                  (stylesheets.size() - compiled) + " of " +
+                          stylesheets.size() + " failed to compile");
+        }
+      });
+    }
+
+    for (final var ent: extraSteps.entrySet()) {
+      failed += step(ent.getKey(), ent.getValue());
+    }
+
+    info("Warm up completed in " +
+                 (System.currentTimeMillis() - start) +
+                 " millis with " + failed + " failures");
+
+    return failed;
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private int step(final String name,
+                   final Runnable work) {
+    final long start = System.currentTimeMillis();
+
+    try {
+      work.run();
+
+      if (debug()) {
+        debug("Warm up " + name + " took " +
+                      (System.currentTimeMillis() - start) + " millis");
+      }
+
+      return 0;
+    } catch (final Throwable t) {
+      warn("Warm up " + name + " failed: " + t.getMessage());
+      return 1;
+    }
+  }
+
+  private void buildViews(final Locale loc,
+                          final int times) {
+    final Locale saved = BwLocale.getLocale();
+
+    try {
+      BwLocale.setLocale(loc);
+
+      for (int i = 0; i < times; i++) {
+        final var today = new CalendarFormatter(new Date());
+
+        final TimeView[] tvs = {
+                TimeView.make(BedeworkDefs.dayView, today, null, config),
+                TimeView.make(BedeworkDefs.weekView, today, null, config),
+                TimeView.make(BedeworkDefs.monthView, today, null, config)
+        };
+
+        for (final TimeView tv: tvs) {
+          tv.getTimePeriodInfo();
+        }
+      }
+    } finally {
+      BwLocale.setLocale(saved);
+    }
+  }
+
+  private List<Locale> getLocales() {
+    final List<Locale> res = new ArrayList<>();
+
+    for (final String s: split(config.getWarmupLocales())) {
+      res.add(Locale.forLanguageTag(s.replace('_', '-')));
+    }
+
+    return res;
+  }
+
+  private static List<String> split(final String val) {
+    final List<String> res = new ArrayList<>();
+
+    if (val == null) {
+      return res;
+    }
+
+    for (final String s: val.split(",")) {
+      final String t = s.trim();
+      if (!t.isEmpty()) {
+        res.add(t);
+      }
+    }
+
+    return res;
+  }
+
+  /* =============================================================
+   *                   Logged methods
+   * ============================================================= */
+
+  private final BwLogger logger = new BwLogger();
+
+  @Override
+  public BwLogger getLogger() {
+    if ((logger.getLoggedClass() == null) && (logger.getLoggedName() == null)) {
+      logger.setLoggedClass(getClass());
+    }
+
+    return logger;
+  }
+}
@@ -26,8 +26,13 @@ import org.bedework.util.timezones.TimeZoneName;
 import org.bedework.util.timezones.Timezones;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.TreeSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
 
 import static org.bedework.util.dates.DateFormatter.icalDateFormat;
 import static org.bedework.util.dates.DateFormatter.icalDateTimeFormat;
@@ -140,20 +145,27 @@ public class TimeDateComponents implements Serializable {
     return fieldInError;
   }
 
-  /** Get a list of system timezones
+  /** Get a list of system timezones. The list is shared and must not
+   * be modified.
    *
    * @return Collection of timezone names
    */
   public Collection<TimeZoneName> getTimeZoneNames() {
-    final Collection<TimeZoneName> nms = new TreeSet<>();
-
     try {
-      nms.addAll(Timezones.getTzNames());
+      return getTimeZoneCatalogue().getNames();
     } catch (final Throwable t) {
       fieldInError = "TimeZoneNames";
+      return Collections.emptyList();
     }
+  }
 
-    return nms;
+  /** Get the shared catalogue of timezone names for our locale. This
+   * supports prefix and substring lookup for autocomplete.
+   *
+   * @return catalogue
+   */
+  public TimeZoneCatalogue getTimeZoneCatalogue() {
+    return TimeZoneCatalogue.getInstance(getCalInfo().getLocale());
   }
 
   /**
@@ -366,6 +378,12 @@ public class TimeDateComponents implements Serializable {
       c.set(Calendar.MINUTE, getMinute());
     }
     */
+    if (direct()) {
+      /* Build directly from the components */
+      return makeDateTime(getTzid(),
+                          storeUTC ? null : zone(getTzid()));
+    }
+
     final StringBuilder sb = new StringBuilder();
     getFourDigit(sb, getYear());
     getTwoDigit(sb, getMonth());
@@ -379,17 +397,46 @@ public class TimeDateComponents implements Serializable {
       sb.append("00");
     }
 
-    if (storeUTC) {
-      sb.append("Z");
-      return BwDateTimeUtil.getDateTimeUTC(sb.toString());
-    }
-
     return BwDateTimeUtil.getDateTime(sb.toString(),
                                       getDateOnly(),
                                       floating,
                                       tzid);
   }
 
+  /** Convert many components at once. Each distinct timezone is
+   * looked up once for the whole collection.
+   *
+   * @param tdcs components to convert
+   * @return date/time values in the same order
+   */
+  public static List<BwDateTime> getDateTimes(
+          final Collection<TimeDateComponents> tdcs) {
+    final List<BwDateTime> res = new ArrayList<>(tdcs.size());
+    final Map<String, TimeZone> zones = new HashMap<>();
+
+    for (final TimeDateComponents tdc: tdcs) {
+      if (!tdc.direct()) {
+        res.add(tdc.getDateTime());
+        continue;
+      }
+
+      final String tzid = tdc.getTzid();
+      TimeZone tz = null;
+
+      if (!tdc.storeUTC) {
+        tz = zones.get(tzid);
+        if (tz == null) {
+          tz = zone(tzid);
+          zones.put(tzid, tz);
+        }
+      }
+
+      res.add(tdc.makeDateTime(tzid, tz));
+    }
+
+    return res;
+  }
+
   /**
    * @return hours in 24-hour mode
    */
@@ -405,26 +452,27 @@ public class TimeDateComponents implements Serializable {
    * @return String date time in rfc3339 format
    */
   public String getRfc3339DateTime() {
-    final StringBuilder sb = new StringBuilder();
-    getFourDigit(sb, getYear());
-    sb.append("-");
-    getTwoDigit(sb, getMonth());
-    sb.append("-");
-    getTwoDigit(sb, getDay());
-    sb.append("T");
+    final char[] buf = new char[19];
+
+    UtcDates.putDigits(buf, 0, getYear(), 4);
+    buf[4] = '-';
+    UtcDates.putDigits(buf, 5, getMonth(), 2);
+    buf[7] = '-';
+    UtcDates.putDigits(buf, 8, getDay(), 2);
+    buf[10] = 'T';
 
     if (getDateOnly()) {
-      sb.append("00:00:00");
+      UtcDates.putDigits(buf, 11, 0, 2);
+      UtcDates.putDigits(buf, 14, 0, 2);
     } else {
-      getTwoDigit(sb, get24Hourval());
-      sb.append(":");
-      getTwoDigit(sb, getMinute());
-      sb.append(":");
-      //getTwoDigit(sb, getSecond());
-      sb.append("00");
+      UtcDates.putDigits(buf, 11, get24Hourval(), 2);
+      UtcDates.putDigits(buf, 14, getMinute(), 2);
     }
+    buf[13] = ':';
+    buf[16] = ':';
+    UtcDates.putDigits(buf, 17, 0, 2);
 
-    return sb.toString();
+    return new String(buf);
   }
 
   /* These methods are probably the ones that matter - the set and get the
@@ -563,6 +611,54 @@ public class TimeDateComponents implements Serializable {
     }
   }
 
+  /* Build the value and its UTC form from the components without
+   * going through the string parser.
+   */
+  /* True if getDateTime builds the value from the fields */
+  private boolean direct() {
+    return !getDateOnly() && (storeUTC || !floating);
+  }
+
+  /* Resolve tzid - throws for an unknown zone. Null for UTC values. */
+  private static TimeZone zone(final String tzid) {
+    final TimeZone tz = TimeZoneCatalogue.getTimeZone(tzid);
+    if (tz == null) {
+      throw new TimeDateException(CalFacadeErrorCode.unknownTimezone +
+                                          ": " + tzid);
+    }
+
+    return tz;
+  }
+
+  /* tz is the resolved tzid - ignored if storing UTC */
+  private BwDateTime makeDateTime(final String tzid,
+                                  final TimeZone tz) {
+    final int hr = get24Hourval();
+
+    final BwDateTime dt = new BwDateTime();
+    dt.setDateType(false);
+    dt.setFloatFlag(false);
+
+    final char[] dtval = new char[15];
+    UtcDates.putIsoDateTime(dtval, getYear(), getMonth(), getDay(),
+                            hr, getMinute(), 0);
+
+    if (storeUTC) {
+      final String utc = new String(dtval) + "Z";
+      dt.setDtval(utc);
+      dt.setDate(utc);
+      return dt;
+    }
+
+    dt.setTzid(tzid);
+    dt.setDtval(new String(dtval));
+    final long local = UtcDates.localMillis(getYear(), getMonth(),
+                                            getDay(), hr, getMinute());
+    dt.setDate(UtcDates.formatUtc(UtcDates.toUtc(local, tz)));
+
+    return dt;
+  }
+
   private int getInt(final String val) {
     return Integer.parseInt(val);
   }
@@ -0,0 +1,351 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.locale.BwLocale;
+import org.bedework.util.timezones.TimeZoneName;
+import org.bedework.util.timezones.Timezones;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** An immutable, sorted catalogue of the system timezone names for a
+ * locale with indexes for prefix and substring lookup. Instances are
+ * shared. The timezone names are rechecked at most every
+ * checkInterval millis and the catalogues rebuilt only if they have
+ * changed.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class TimeZoneCatalogue {
+  static long checkInterval = 1000 * 60 * 5;
+
+  private static final Map<Locale, TimeZoneCatalogue> catalogues =
+          new ConcurrentHashMap<>();
+
+  /* Fingerprint of the names the catalogues were built from */
+  private static volatile long sourceFingerprint;
+  private static volatile long lastCheck;
+
+  private static final Object checkLocker = new Object();
+
+  /* Resolved zones - cleared with the catalogues */
+  private static final Map<String, TimeZone> zones =
+          new ConcurrentHashMap<>();
+
+  private static final int ngramLength = 3;
+
+  private final List<TimeZoneName> names;
+
+  /* Lower-cased names and ids - same order as names */
+  private final String[] keys;
+  private final String[] ids;
+
+  /* Positions in names of entries sorted by key - for prefix search */
+  private final int[] byKey;
+  private final String[] sortedKeys;
+
+  /* ngram -> positions in names */
+  private final Map<String, int[]> ngrams;
+
+  private TimeZoneCatalogue(final Collection<TimeZoneName> tzNames,
+                            final Locale locale) {
+    final Collator coll = Collator.getInstance(locale);
+    final List<TimeZoneName> sorted = new ArrayList<>(tzNames);
+    sorted.sort((o1, o2) -> coll.compare(o1.getName(), o2.getName()));
+
+    names = Collections.unmodifiableList(sorted);
+
+    final int sz = sorted.size();
+    keys = new String[sz];
+    ids = new String[sz];
+
+    for (int i = 0; i < sz; i++) {
+      keys[i] = lower(sorted.get(i).getName());
+      ids[i] = lower(sorted.get(i).getId());
+    }
+
+    final Integer[] order = new Integer[sz];
+    for (int i = 0; i < sz; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+
+    byKey = new int[sz];
+    sortedKeys = new String[sz];
+    for (int i = 0; i < sz; i++) {
+      byKey[i] = order[i];
+      sortedKeys[i] = keys[order[i]];
+    }
+
+    final Map<String, List<Integer>> ng = new HashMap<>();
+    for (int i = 0; i < sz; i++) {
+      final var seen = new TreeSet<String>();
+      addNgrams(keys[i], seen);
+      addNgrams(ids[i], seen);
+
+      for (final var g: seen) {
+        ng.computeIfAbsent(g, k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    ngrams = new HashMap<>(ng.size());
+    for (final var ent: ng.entrySet()) {
+      ngrams.put(ent.getKey(),
+                 ent.getValue().stream().mapToInt(Integer::intValue)
+                    .toArray());
+    }
+  }
+
+  /**
+   * @return catalogue for the current thread locale
+   */
+  public static TimeZoneCatalogue getInstance() {
+    return getInstance(BwLocale.getLocale());
+  }
+
+  /**
+   * @param locale for sorting
+   * @return shared catalogue
+   */
+  public static TimeZoneCatalogue getInstance(final Locale locale) {
+    checkSource();
+
+    return catalogues.computeIfAbsent(locale, loc -> {
+      try {
+        return new TimeZoneCatalogue(Timezones.getTzNames(), loc);
+      } catch (final Throwable t) {
+        throw new RuntimeException(t);
+      }
+    });
+  }
+
+  /** Discard all catalogues. Called when the timezone data is known to
+   * have changed.
+   */
+  public static void invalidate() {
+    catalogues.clear();
+    zones.clear();
+    lastCheck = 0;
+  }
+
+  /** Resolve a timezone through the timezone service and cache it. The
+   * cache is cleared along with the catalogues.
+   *
+   * @param tzid the id
+   * @return the timezone or null if unknown
+   */
+  public static TimeZone getTimeZone(final String tzid) {
+    checkSource();
+
+    final var tz = zones.get(tzid);
+    if (tz != null) {
+      return tz;
+    }
+
+    final TimeZone res;
+    try {
+      res = Timezones.getTz(tzid);
+    } catch (final Throwable t) {
+      throw new RuntimeException(t);
+    }
+
+    if (res != null) {
+      zones.put(tzid, res);
+    }
+
+    return res;
+  }
+
+  /**
+   * @return all names in sorted order
+   */
+  public List<TimeZoneName> getNames() {
+    return names;
+  }
+
+  /**
+   * @param prefix case-insensitive
+   * @param max maximum number to return - zero or less for all
+   * @return names starting with prefix in sorted order
+   */
+  public List<TimeZoneName> getByPrefix(final String prefix,
+                                        final int max) {
+    final String p = lower(prefix);
+    if (p.isEmpty()) {
+      return limit(names, max);
+    }
+
+    int lo = 0;
+    int hi = sortedKeys.length;
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (sortedKeys[mid].compareTo(p) < 0) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    final List<Integer> found = new ArrayList<>();
+    for (int i = lo;
+         (i < sortedKeys.length) && sortedKeys[i].startsWith(p);
+         i++) {
+      found.add(byKey[i]);
+    }
+
+    Collections.sort(found);
+
+    return limit(positionsToNames(found), max);
+  }
+
+  /**
+   * @param val case-insensitive, matched against names and ids
+   * @param max maximum number to return - zero or less for all
+   * @return names containing val in sorted order
+   */
+  public List<TimeZoneName> getContaining(final String val,
+                                          final int max) {
+    final String s = lower(val);
+    if (s.isEmpty()) {
+      return limit(names, max);
+    }
+
+    final List<Integer> found = new ArrayList<>();
+
+    if (s.length() < ngramLength) {
+      for (int i = 0; i < keys.length; i++) {
+        if (keys[i].contains(s) || ids[i].contains(s)) {
+          found.add(i);
+        }
+      }
+
+      return limit(positionsToNames(found), max);
+    }
+
+    /* Candidates from the rarest ngram then check */
+    int[] cands = null;
+    for (int i = 0; i + ngramLength <= s.length(); i++) {
+      final int[] p = ngrams.get(s.substring(i, i + ngramLength));
+      if (p == null) {
+        return Collections.emptyList();
+      }
+
+      if ((cands == null) || (p.length < cands.length)) {
+        cands = p;
+      }
+    }
+
+    for (final int i: cands) {
+      if (keys[i].contains(s) || ids[i].contains(s)) {
+        found.add(i);
+      }
+    }
+
+    return limit(positionsToNames(found), max);
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private static void checkSource() {
+    final long now = System.currentTimeMillis();
+    if (now < lastCheck + checkInterval) {
+      return;
+    }
+
+    synchronized (checkLocker) {
+      if (now < lastCheck + checkInterval) {
+        return;
+      }
+
+      final long fp;
+      try {
+        fp = fingerprint(Timezones.getTzNames());
+      } catch (final Throwable t) {
+        // Keep what we have - try again later
+        lastCheck = now;
+        return;
+      }
+
+      if (fp != sourceFingerprint) {
+        catalogues.clear();
+        zones.clear();
+        sourceFingerprint = fp;
+      }
+
+      lastCheck = now;
+    }
+  }
+
+  private static long fingerprint(final Collection<TimeZoneName> tzNames) {
+    long fp = tzNames.size();
+
+    for (final var tzn: tzNames) {
+      fp = 31 * fp + String.valueOf(tzn.getId()).hashCode();
+      fp = 31 * fp + String.valueOf(tzn.getName()).hashCode();
+    }
+
+    return fp;
+  }
+
+  private static void addNgrams(final String val,
+                                final Collection<String> res) {
+    for (int i = 0; i + ngramLength <= val.length(); i++) {
+      res.add(val.substring(i, i + ngramLength));
+    }
+  }
+
+  private List<TimeZoneName> positionsToNames(final List<Integer> pos) {
+    final List<TimeZoneName> res = new ArrayList<>(pos.size());
+    for (final int i: pos) {
+      res.add(names.get(i));
+    }
+
+    return res;
+  }
+
+  private static List<TimeZoneName> limit(final List<TimeZoneName> val,
+                                          final int max) {
+    if ((max <= 0) || (val.size() <= max)) {
+      return val;
+    }
+
+    return val.subList(0, max);
+  }
+
+  private static String lower(final String val) {
+    if (val == null) {
+      return "";
+    }
+
+    return val.toLowerCase(Locale.ROOT);
+  }
+}
@@ -0,0 +1,135 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+
+/** Arithmetic and formatting of date/time values held as epoch millis.
+ * These avoid the string parsing carried out by BwDateTimeUtil.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class UtcDates {
+  /** */
+  public static final long millisPerDay = 24 * 60 * 60 * 1000L;
+
+  private UtcDates() {
+  }
+
+  /**
+   * @param year e.g. 2024
+   * @param month 1-12
+   * @param day 1-31
+   * @param hour 0-23
+   * @param minute 0-59
+   * @return millis as if the local time were UTC
+   */
+  public static long localMillis(final int year,
+                                 final int month,
+                                 final int day,
+                                 final int hour,
+                                 final int minute) {
+    return LocalDate.of(year, month, day).toEpochDay() * millisPerDay +
+            hour * 3600000L + minute * 60000L;
+  }
+
+  /** Convert a local time to UTC. For a time in a daylight saving gap
+   * the result is as if the earlier offset applied.
+   *
+   * @param local from localMillis
+   * @param tz the timezone
+   * @return UTC millis
+   */
+  public static long toUtc(final long local, final TimeZone tz) {
+    final int off1 = tz.getOffset(local - tz.getRawOffset());
+    final long utc = local - off1;
+    final int off2 = tz.getOffset(utc);
+
+    if (off2 != off1) {
+      return local - off2;
+    }
+
+    return utc;
+  }
+
+  /**
+   * @param utc millis
+   * @return ical UTC form yyyyMMddTHHmmssZ
+   */
+  public static String formatUtc(final long utc) {
+    final LocalDateTime ldt =
+            LocalDateTime.ofEpochSecond(Math.floorDiv(utc, 1000), 0,
+                                        ZoneOffset.UTC);
+
+    final char[] buf = new char[16];
+    putIsoDateTime(buf, ldt.getYear(), ldt.getMonthValue(),
+                   ldt.getDayOfMonth(), ldt.getHour(),
+                   ldt.getMinute(), ldt.getSecond());
+    buf[15] = 'Z';
+
+    return new String(buf);
+  }
+
+  /** Place yyyyMMddTHHmmss at the start of buf
+   *
+   * @param buf at least 15 chars
+   * @param year e.g. 2024
+   * @param month 1-12
+   * @param day 1-31
+   * @param hour 0-23
+   * @param minute 0-59
+   * @param second 0-59
+   */
+  public static void putIsoDateTime(final char[] buf,
+                                    final int year,
+                                    final int month,
+                                    final int day,
+                                    final int hour,
+                                    final int minute,
+                                    final int second) {
+    putDigits(buf, 0, year, 4);
+    putDigits(buf, 4, month, 2);
+    putDigits(buf, 6, day, 2);
+    buf[8] = 'T';
+    putDigits(buf, 9, hour, 2);
+    putDigits(buf, 11, minute, 2);
+    putDigits(buf, 13, second, 2);
+  }
+
+  /** Place a zero padded number in buf
+   *
+   * @param buf for result
+   * @param pos where to start
+   * @param val non-negative number
+   * @param len number of digits
+   */
+  public static void putDigits(final char[] buf,
+                               final int pos,
+                               final int val,
+                               final int len) {
+    int v = val;
+    for (int i = pos + len - 1; i >= pos; i--) {
+      buf[i] = (char)('0' + (v % 10));
+      v /= 10;
+    }
+  }
+}
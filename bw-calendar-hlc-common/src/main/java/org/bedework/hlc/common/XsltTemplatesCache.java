@@ -0,0 +1,341 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common;
+
+import org.bedework.util.logging.BwLogger;
+import org.bedework.util.logging.Logged;
+import org.bedework.util.servlet.filters.ConfiguredXSLTFilter.XSLTConfig;
+
+import java.io.File;
+import java.net.URI;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+
+/** A process wide cache of compiled stylesheets. Templates objects are
+ * thread-safe so one compiled stylesheet serves every session using
+ * the same XSLT configuration - app root, skin, locale and browser
+ * type - and so the same stylesheet.
+ *
+ * <p>The cache does not look for stylesheets itself. The system id in
+ * each key is the stylesheet ConfiguredXSLTFilter resolved for the
+ * configuration, with all of its fallbacks applied.</p>
+ *
+ * <p>The least recently used entries are discarded when the cache is
+ * full. Optionally the stylesheet file is checked for changes, by one
+ * thread at most every checkInterval millis, and recompiled if
+ * modified. Different stylesheets compile in parallel.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class XsltTemplatesCache implements Logged {
+  private static final XsltTemplatesCache instance =
+          new XsltTemplatesCache();
+
+  /** Identifies a stylesheet.
+   *
+   * @param appRoot from the XSLT configuration
+   * @param skin skin name
+   * @param locale e.g. en_US
+   * @param browserType e.g. default
+   * @param systemId url or path of the stylesheet as resolved by
+   *                 ConfiguredXSLTFilter for the rest of the key
+   */
+  public record Key(String appRoot,
+                    String skin,
+                    String locale,
+                    String browserType,
+                    String systemId) {
+  }
+
+  private static class Entry {
+    final CompletableFuture<Templates> templates =
+            new CompletableFuture<>();
+
+    /* For file based stylesheets - 0 for unknown */
+    volatile long lastModified;
+    final AtomicLong lastChecked = new AtomicLong();
+  }
+
+  /* TransformerFactory is not thread-safe */
+  private static final ThreadLocal<TransformerFactory> factories =
+          ThreadLocal.withInitial(TransformerFactory::newInstance);
+
+  private int maxEntries = 100;
+  private boolean checkModified;
+  private long checkInterval = 10 * 1000;
+
+  private final Map<Key, Entry> entries =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<Key, Entry> eldest) {
+              return size() > maxEntries;
+            }
+          };
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  private XsltTemplatesCache() {
+  }
+
+  /**
+   * @return the shared cache
+   */
+  public static XsltTemplatesCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * @param val maximum number of compiled stylesheets
+   */
+  public void setMaxEntries(final int val) {
+    synchronized (entries) {
+      maxEntries = val;
+    }
+  }
+
+  /**
+   * @param val true to recompile stylesheet files when they change
+   * @param interval millis between checks of a file
+   */
+  public void setCheckModified(final boolean val,
+                               final long interval) {
+    checkModified = val;
+    checkInterval = interval;
+  }
+
+  /**
+   * @param val the current XSLT configuration of a session
+   * @param systemId the stylesheet the filter resolved for val
+   * @return key for the stylesheet
+   */
+  public static Key makeKey(final XSLTConfig val,
+                            final String systemId) {
+    final var cfg = val.cfg;
+
+    return new Key(cfg.getAppRoot(), cfg.getSkinName(),
+                   cfg.getLocaleInfo(), cfg.getBrowserType(),
+                   systemId);
+  }
+
+  /** Return the compiled stylesheet, compiling it if not cached. Only
+   * one thread compiles a given stylesheet - others wait for it.
+   *
+   * @param key from makeKey
+   * @return compiled stylesheet
+   * @throws TransformerException on compile errors
+   */
+  public Templates getTemplates(final Key key)
+          throws TransformerException {
+    final Entry cached;
+
+    synchronized (entries) {
+      cached = entries.get(key);
+    }
+
+    /* Any check of the file is made without holding the lock */
+    Entry ent = cached;
+    boolean compile = false;
+
+    if ((cached == null) || changed(key, cached)) {
+      synchronized (entries) {
+        ent = entries.get(key);
+
+        /* Unless another thread got there first */
+        if ((ent == null) || (ent == cached)) {
+          ent = new Entry();
+          entries.put(key, ent);
+          compile = true;
+        }
+      }
+    }
+
+    if (compile) {
+      misses.incrementAndGet();
+      compile(key, ent);
+    } else {
+      hits.incrementAndGet();
+    }
+
+    try {
+      return ent.templates.get();
+    } catch (final InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new TransformerException(ie);
+    } catch (final ExecutionException ee) {
+      if (ee.getCause() instanceof final TransformerException te) {
+        throw te;
+      }
+
+      throw new TransformerException(ee.getCause());
+    }
+  }
+
+  /** Compile the given stylesheets. Failures are logged and not
+   * cached.
+   *
+   * @param keys stylesheets to compile
+   * @return number compiled
+   */
+  public int warmUp(final Collection<Key> keys) {
+    int res = 0;
+
+    for (final Key key: keys) {
+      try {
+        getTemplates(key);
+        res++;
+      } catch (final Throwable t) {
+        warn("Unable to compile stylesheet for " + key +
+                     ": " + t.getMessage());
+      }
+    }
+
+    return res;
+  }
+
+  /** Discard one stylesheet.
+   *
+   * @param key identifies the stylesheet
+   */
+  public void invalidate(final Key key) {
+    synchronized (entries) {
+      entries.remove(key);
+    }
+  }
+
+  /** Discard all stylesheets.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  /**
+   * @return number cached
+   */
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  /**
+   * @return number of requests satisfied from the cache
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return number of compilations
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private void compile(final Key key,
+                       final Entry ent) {
+    try {
+      final long modified = lastModified(key.systemId());
+      final Templates t = factories.get().newTemplates(
+              new StreamSource(key.systemId()));
+
+      ent.lastModified = modified;
+      ent.lastChecked.set(System.currentTimeMillis());
+      ent.templates.complete(t);
+    } catch (final Throwable t) {
+      synchronized (entries) {
+        if (entries.get(key) == ent) {
+          entries.remove(key);
+        }
+      }
+
+      ent.templates.completeExceptionally(t);
+    }
+  }
+
+  /* Only the thread which moves lastChecked on looks at the file -
+   * the others carry on with the cached stylesheet.
+   */
+  private boolean changed(final Key key,
+                          final Entry ent) {
+    if (!checkModified || !ent.templates.isDone() ||
+            (ent.lastModified == 0)) {
+      return false;
+    }
+
+    final long now = System.currentTimeMillis();
+    final long last = ent.lastChecked.get();
+
+    if ((now < last + checkInterval) ||
+            !ent.lastChecked.compareAndSet(last, now)) {
+      return false;
+    }
+
+    return lastModified(key.systemId()) != ent.lastModified;
+  }
+
+  private static long lastModified(final String systemId) {
+    try {
+      final File f;
+
+      if (systemId.startsWith("file:")) {
+        f = new File(new URI(systemId));
+      } else if (systemId.indexOf(':') < 0) {
+        f = new File(systemId);
+      } else {
+        return 0;
+      }
+
+      return f.lastModified();
+    } catch (final Throwable ignored) {
+      return 0;
+    }
+  }
+
+  /* =============================================================
+   *                   Logged methods
+   * ============================================================= */
+
+  private final BwLogger logger = new BwLogger();
+
+  @Override
+  public BwLogger getLogger() {
+    if ((logger.getLoggedClass() == null) && (logger.getLoggedName() == null)) {
+      logger.setLoggedClass(getClass());
+    }
+
+    return logger;
+  }
+}
@@ -0,0 +1,138 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Java Flight Recorder events for the more expensive operations of
+ * the high level client. Each event is timed between begin() and
+ * commit(). When recording is disabled the cost is negligible.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class JfrEvents {
+  private JfrEvents() {
+  }
+
+  /** TimeView.getTimePeriodInfo */
+  @Name("org.bedework.hlc.TimePeriodInfo")
+  @Label("Build Time Period Info")
+  @Category({"Bedework", "HLC"})
+  @Description("Building the year/month/week/day structure of a view")
+  public static class TimePeriodInfo extends Event {
+    @Label("View Type")
+    public String viewType;
+
+    @Label("Days")
+    public int days;
+  }
+
+  /** TimeView.putEvents */
+  @Name("org.bedework.hlc.PutEvents")
+  @Label("Put View Events")
+  @Category({"Bedework", "HLC"})
+  @Description("Storing search results in a view")
+  public static class PutEvents extends Event {
+    @Label("View Type")
+    public String viewType;
+
+    @Label("Entries")
+    public int entries;
+
+    @Label("Events")
+    public int events;
+  }
+
+  /** TimeView.getDaysEvents */
+  @Name("org.bedework.hlc.DaysEvents")
+  @Label("Get Days Events")
+  @Category({"Bedework", "HLC"})
+  @Description("Selecting the events for one day of a view")
+  public static class DaysEvents extends Event {
+    @Label("Date")
+    public String date;
+
+    @Label("Candidates")
+    public int candidates;
+
+    @Label("Events")
+    public int events;
+  }
+
+  /** EventFormatter construction */
+  @Name("org.bedework.hlc.EventFormatter")
+  @Label("Create Event Formatter")
+  @Category({"Bedework", "HLC"})
+  @Description("Creating an EventFormatter including the acl xml")
+  public static class EventFormatterCreate extends Event {
+    @Label("Href")
+    public String href;
+
+    @Label("Acl Length")
+    public int aclLength;
+  }
+
+  /** ReadOnlyHighLevelClientImpl.refreshAdminGroupInfo */
+  @Name("org.bedework.hlc.AdminGroupRefresh")
+  @Label("Refresh Admin Group Info")
+  @Category({"Bedework", "HLC"})
+  @Description("Refreshing the cached admin groups and calendar suites")
+  public static class AdminGroupRefresh extends Event {
+    @Label("Refreshed")
+    @Description("False if the cached value was used")
+    public boolean refreshed;
+
+    @Label("Suites")
+    public int suites;
+
+    @Label("Groups")
+    public int groups;
+
+    @Label("Principals")
+    @Description("Principals cloned")
+    public int principals;
+
+    @Label("Memberships")
+    public int memberships;
+
+    @Label("Depth")
+    @Description("Deepest group nesting")
+    public int depth;
+  }
+
+  /** BwModule.claim */
+  @Name("org.bedework.hlc.ModuleClaim")
+  @Label("Claim Module")
+  @Category({"Bedework", "HLC"})
+  @Description("Waiting for exclusive use of a module")
+  public static class ModuleClaim extends Event {
+    @Label("Module")
+    public String module;
+
+    @Label("Attempts")
+    public int attempts;
+
+    @Label("Claimed")
+    public boolean claimed;
+  }
+}
@@ -0,0 +1,136 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A fixed bucket histogram of millisecond latencies. Recording is
+ * lock free. Percentiles are approximated by the upper bound of the
+ * bucket in which they fall.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class LatencyHistogram {
+  /* Upper bounds (inclusive) of the buckets. The last bucket is
+   * unbounded.
+   */
+  private static final long[] bounds = {
+          1, 2, 5, 10, 20, 50, 100, 200, 500,
+          1000, 2000, 5000, 10000, 30000, 60000
+  };
+
+  private final AtomicLongArray counts =
+          new AtomicLongArray(bounds.length + 1);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * @param millis the latency
+   */
+  public void record(final long millis) {
+    final long val = Math.max(0, millis);
+
+    counts.incrementAndGet(bucket(val));
+    count.incrementAndGet();
+    total.addAndGet(val);
+    max.accumulateAndGet(val, Math::max);
+  }
+
+  /**
+   * @return number recorded
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return total of all latencies
+   */
+  public long getTotal() {
+    return total.get();
+  }
+
+  /**
+   * @return maximum recorded
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return mean or 0 for none
+   */
+  public long getMean() {
+    final long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+
+    return total.get() / n;
+  }
+
+  /**
+   * @param p percentile 0 &lt; p &le; 100
+   * @return approximate value or 0 for none recorded
+   */
+  public long getPercentile(final double p) {
+    final long n = count.get();
+    if (n == 0) {
+      return 0;
+    }
+
+    final long target = (long)Math.ceil(n * p / 100);
+    long cum = 0;
+
+    for (int i = 0; i < counts.length(); i++) {
+      cum += counts.get(i);
+      if (cum >= target) {
+        if (i < bounds.length) {
+          return Math.min(bounds[i], getMax());
+        }
+        return getMax();
+      }
+    }
+
+    return getMax();
+  }
+
+  /** Clear all values
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  }
+
+  private static int bucket(final long val) {
+    for (int i = 0; i < bounds.length; i++) {
+      if (val <= bounds[i]) {
+        return i;
+      }
+    }
+
+    return bounds.length;
+  }
+}
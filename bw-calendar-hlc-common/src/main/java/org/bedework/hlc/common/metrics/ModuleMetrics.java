@@ -0,0 +1,345 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.metrics;
+
+import org.bedework.hlc.common.BwModuleState;
+import org.bedework.util.logging.BwLogger;
+import org.bedework.util.logging.Logged;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/** Process wide request metrics for the modules. Latencies, requests
+ * in flight and throughput are held per module name and action type.
+ * The single instance is registered with the platform mbean server on
+ * first use.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class ModuleMetrics implements Logged, ModuleMetricsMBean {
+  /** Name under which we are registered */
+  public static final String mbeanName =
+          "org.bedework.hlc:service=ModuleMetrics";
+
+  private static volatile ModuleMetrics instance;
+
+  /* Metrics for one module name and action type */
+  private static class ActionMetrics {
+    final LatencyHistogram latencies = new LatencyHistogram();
+    final AtomicInteger inFlight = new AtomicInteger();
+  }
+
+  private final Map<String, ActionMetrics> actions =
+          new ConcurrentHashMap<>();
+
+  private final AtomicLong claimWaits = new AtomicLong();
+  private final AtomicLong claimWaitMillis = new AtomicLong();
+  private final AtomicLong claimRejections = new AtomicLong();
+
+  private volatile long startTime = System.currentTimeMillis();
+
+  private volatile int groupGraphNodes;
+  private volatile int groupGraphEdges;
+  private volatile int groupGraphDepth;
+
+  private ModuleMetrics() {
+  }
+
+  /**
+   * @return the metrics object - registered as an mbean.
+   */
+  public static ModuleMetrics getInstance() {
+    if (instance != null) {
+      return instance;
+    }
+
+    synchronized (ModuleMetrics.class) {
+      if (instance == null) {
+        final var mm = new ModuleMetrics();
+        mm.register();
+        instance = mm;
+      }
+    }
+
+    return instance;
+  }
+
+  /** Called at the start of a request.
+   *
+   * @param moduleName of module
+   * @param actionType from the request
+   */
+  public void requestIn(final String moduleName,
+                        final int actionType) {
+    action(moduleName, actionType).inFlight.incrementAndGet();
+  }
+
+  /** Called at the end of a request with the same module and action
+   * as the matching requestIn.
+   *
+   * @param moduleName of module
+   * @param actionType from the request
+   * @param millis time taken
+   */
+  public void requestOut(final String moduleName,
+                         final int actionType,
+                         final long millis) {
+    final var am = action(moduleName, actionType);
+
+    am.inFlight.decrementAndGet();
+    am.latencies.record(millis);
+  }
+
+  /** Called when a claim had to wait.
+   *
+   * @param millis time spent waiting
+   */
+  public void claimWaited(final long millis) {
+    claimWaits.incrementAndGet();
+    claimWaitMillis.addAndGet(millis);
+  }
+
+  /** Called when a claim was rejected
+   */
+  public void claimRejected() {
+    claimRejections.incrementAndGet();
+  }
+
+  /** Called after the admin groups are cloned.
+   *
+   * @param nodes principals cloned
+   * @param edges memberships copied
+   * @param depth deepest nesting
+   */
+  public void groupGraph(final int nodes,
+                         final int edges,
+                         final int depth) {
+    groupGraphNodes = nodes;
+    groupGraphEdges = edges;
+    groupGraphDepth = depth;
+  }
+
+  /**
+   * @param moduleName of module
+   * @param actionType from the request
+   * @return histogram or null
+   */
+  public LatencyHistogram getLatencies(final String moduleName,
+                                       final int actionType) {
+    final var am = actions.get(key(moduleName, actionType));
+    if (am == null) {
+      return null;
+    }
+
+    return am.latencies;
+  }
+
+  /**
+   * @param moduleName of module
+   * @param actionType from the request
+   * @return requests of this type in progress
+   */
+  public int getInFlight(final String moduleName,
+                         final int actionType) {
+    final var am = actions.get(key(moduleName, actionType));
+    if (am == null) {
+      return 0;
+    }
+
+    return am.inFlight.get();
+  }
+
+  /**
+   * @param moduleName of module
+   * @param actionType from the request
+   * @return requests of this type per second since start or reset
+   */
+  public double getThroughput(final String moduleName,
+                              final int actionType) {
+    final var am = actions.get(key(moduleName, actionType));
+    if (am == null) {
+      return 0;
+    }
+
+    return perSecond(am.latencies.getCount());
+  }
+
+  /* ====================================================================
+   *                   MBean methods
+   * ==================================================================== */
+
+  @Override
+  public long getRequests() {
+    long n = 0;
+    for (final var am: actions.values()) {
+      n += am.latencies.getCount();
+    }
+
+    return n;
+  }
+
+  @Override
+  public int getInFlight() {
+    int n = 0;
+    for (final var am: actions.values()) {
+      n += am.inFlight.get();
+    }
+
+    return n;
+  }
+
+  @Override
+  public double getThroughput() {
+    return perSecond(getRequests());
+  }
+
+  @Override
+  public long getClaimWaits() {
+    return claimWaits.get();
+  }
+
+  @Override
+  public long getClaimWaitMillis() {
+    return claimWaitMillis.get();
+  }
+
+  @Override
+  public long getClaimRejections() {
+    return claimRejections.get();
+  }
+
+  @Override
+  public String[] getActionStats() {
+    final List<String> res = new ArrayList<>();
+
+    for (final var ent: new TreeMap<>(actions).entrySet()) {
+      final var am = ent.getValue();
+      final var h = am.latencies;
+
+      res.add(ent.getKey() +
+                      " inFlight=" + am.inFlight.get() +
+                      " throughput=" +
+                      String.format("%.2f", perSecond(h.getCount())) +
+                      " count=" + h.getCount() +
+                      " mean=" + h.getMean() +
+                      " p50=" + h.getPercentile(50) +
+                      " p95=" + h.getPercentile(95) +
+                      " p99=" + h.getPercentile(99) +
+                      " max=" + h.getMax());
+    }
+
+    return res.toArray(new String[0]);
+  }
+
+  @Override
+  public long getSessionSizeAverage() {
+    return BwModuleState.getSerializedSizeAverage();
+  }
+
+  @Override
+  public long getSessionSizeMax() {
+    return BwModuleState.getSerializedSizeMax();
+  }
+
+  @Override
+  public int getGroupGraphNodes() {
+    return groupGraphNodes;
+  }
+
+  @Override
+  public int getGroupGraphEdges() {
+    return groupGraphEdges;
+  }
+
+  @Override
+  public int getGroupGraphDepth() {
+    return groupGraphDepth;
+  }
+
+  @Override
+  public void reset() {
+    /* Keep in flight counts - those requests will still end */
+    for (final var am: actions.values()) {
+      am.latencies.reset();
+    }
+    claimWaits.set(0);
+    claimWaitMillis.set(0);
+    claimRejections.set(0);
+    startTime = System.currentTimeMillis();
+  }
+
+  private ActionMetrics action(final String moduleName,
+                               final int actionType) {
+    return actions.computeIfAbsent(key(moduleName, actionType),
+                                   k -> new ActionMetrics());
+  }
+
+  private static String key(final String moduleName,
+                            final int actionType) {
+    return moduleName + ":" + actionType;
+  }
+
+  private double perSecond(final long count) {
+    final long secs =
+            (System.currentTimeMillis() - startTime) / 1000;
+    if (secs == 0) {
+      return 0;
+    }
+
+    return (double)count / secs;
+  }
+
+  private void register() {
+    try {
+      final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+      final ObjectName on = new ObjectName(mbeanName);
+
+      if (!mbs.isRegistered(on)) {
+        mbs.registerMBean(this, on);
+      }
+    } catch (final Throwable t) {
+      // Metrics still collected - just not visible
+      warn("Unable to register " + mbeanName + ": " + t.getMessage());
+    }
+  }
+
+  /* ====================================================================
+   *                   Logged methods
+   * ==================================================================== */
+
+  private final BwLogger logger = new BwLogger();
+
+  @Override
+  public BwLogger getLogger() {
+    if ((logger.getLoggedClass() == null) && (logger.getLoggedName() == null)) {
+      logger.setLoggedClass(getClass());
+    }
+
+    return logger;
+  }
+}
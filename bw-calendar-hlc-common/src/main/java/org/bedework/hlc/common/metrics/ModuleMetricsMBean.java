@@ -0,0 +1,104 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.metrics;
+
+import org.bedework.util.jmx.MBeanInfo;
+
+/** Request metrics for the high level client modules.
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public interface ModuleMetricsMBean {
+  /**
+   * @return number of requests completed
+   */
+  @MBeanInfo("Number of requests completed.")
+  long getRequests();
+
+  /**
+   * @return number of requests in progress
+   */
+  @MBeanInfo("Number of requests in progress.")
+  int getInFlight();
+
+  /**
+   * @return requests per second since start or reset
+   */
+  @MBeanInfo("Requests per second since start or last reset.")
+  double getThroughput();
+
+  /**
+   * @return number of claims which had to wait
+   */
+  @MBeanInfo("Number of module claims which had to wait.")
+  long getClaimWaits();
+
+  /**
+   * @return total millis spent waiting for claims
+   */
+  @MBeanInfo("Total millis spent waiting for module claims.")
+  long getClaimWaitMillis();
+
+  /**
+   * @return number of claims rejected
+   */
+  @MBeanInfo("Number of module claims rejected as busy or interrupted.")
+  long getClaimRejections();
+
+  /**
+   * @return one line per module and action type
+   */
+  @MBeanInfo("Latency statistics per module and action type.")
+  String[] getActionStats();
+
+  /**
+   * @return average serialized size of module state
+   */
+  @MBeanInfo("Average serialized size in bytes of module state.")
+  long getSessionSizeAverage();
+
+  /**
+   * @return max serialized size of module state
+   */
+  @MBeanInfo("Maximum serialized size in bytes of module state.")
+  long getSessionSizeMax();
+
+  /**
+   * @return principals in the last admin group graph
+   */
+  @MBeanInfo("Principals cloned in the last admin group refresh.")
+  int getGroupGraphNodes();
+
+  /**
+   * @return memberships in the last admin group graph
+   */
+  @MBeanInfo("Memberships copied in the last admin group refresh.")
+  int getGroupGraphEdges();
+
+  /**
+   * @return nesting depth of the last admin group graph
+   */
+  @MBeanInfo("Deepest group nesting in the last admin group refresh.")
+  int getGroupGraphDepth();
+
+  /** Clear all statistics
+   */
+  @MBeanInfo("Clear all statistics.")
+  void reset();
+}
@@ -0,0 +1,154 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.views;
+
+import org.bedework.hlc.common.TimeZoneCatalogue;
+import org.bedework.hlc.common.UtcDates;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The UTC start of every day of a year in a given timezone. Values
+ * are held as epoch millis and as the ical UTC strings used for event
+ * range checks. Daylight saving changes are taken into account.
+ *
+ * <p>Instances are immutable and shared. They are rebuilt if the
+ * timezone service hands back a new definition for the zone.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public final class DayBoundaries {
+  /* Beyond this we clear the cache - stops it growing unbounded */
+  private static final int maxCached = 500;
+
+  private static final Map<String, DayBoundaries> cache =
+          new ConcurrentHashMap<>();
+
+  private final TimeZone tz;
+  private final int year;
+
+  /* Index 0 is Jan 1st - last entry is Jan 1st of next year */
+  private final long[] starts;
+  private final String[] startsUtc;
+
+  /* Callers use getInstance - tests build one for a known zone */
+  DayBoundaries(final TimeZone tz,
+                final int year) {
+    this.tz = tz;
+    this.year = year;
+
+    final int days = LocalDate.of(year, 1, 1).lengthOfYear();
+
+    starts = new long[days + 1];
+    startsUtc = new String[days + 1];
+
+    final long jan1 = UtcDates.localMillis(year, 1, 1, 0, 0);
+
+    for (int i = 0; i <= days; i++) {
+      starts[i] = UtcDates.toUtc(jan1 + i * UtcDates.millisPerDay, tz);
+      startsUtc[i] = UtcDates.formatUtc(starts[i]);
+    }
+  }
+
+  /**
+   * @param tzid timezone id
+   * @param year e.g. 2024
+   * @return shared boundaries
+   */
+  public static DayBoundaries getInstance(final String tzid,
+                                          final int year) {
+    final TimeZone tz = TimeZoneCatalogue.getTimeZone(tzid);
+    if (tz == null) {
+      throw new RuntimeException("Unknown timezone " + tzid);
+    }
+
+    final String key = tzid + "|" + year;
+    final var db = cache.get(key);
+
+    if ((db != null) && (db.tz == tz)) {
+      return db;
+    }
+
+    if (cache.size() > maxCached) {
+      cache.clear();
+    }
+
+    final var res = new DayBoundaries(tz, year);
+    cache.put(key, res);
+
+    return res;
+  }
+
+  /**
+   * @return the year
+   */
+  public int getYear() {
+    return year;
+  }
+
+  /**
+   * @return number of days in the year
+   */
+  public int getNumDays() {
+    return starts.length - 1;
+  }
+
+  /**
+   * @param month 1-12
+   * @param day 1-31
+   * @return 0 based index of the day in the year
+   */
+  public int dayIndex(final int month, final int day) {
+    return LocalDate.of(year, month, day).getDayOfYear() - 1;
+  }
+
+  /**
+   * @param index 0 based day in year
+   * @return epoch millis of start of day
+   */
+  public long getStart(final int index) {
+    return starts[index];
+  }
+
+  /**
+   * @param index 0 based day in year
+   * @return epoch millis of end of day (exclusive)
+   */
+  public long getEnd(final int index) {
+    return starts[index + 1];
+  }
+
+  /**
+   * @param index 0 based day in year
+   * @return UTC start of day as yyyyMMddTHHmmssZ
+   */
+  public String getStartUtc(final int index) {
+    return startsUtc[index];
+  }
+
+  /**
+   * @param index 0 based day in year
+   * @return UTC end of day (exclusive) as yyyyMMddTHHmmssZ
+   */
+  public String getEndUtc(final int index) {
+    return startsUtc[index + 1];
+  }
+}
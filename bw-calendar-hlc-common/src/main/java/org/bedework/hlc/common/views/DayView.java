@@ -55,5 +55,13 @@ public class DayView extends TimeView {
   public boolean isMultiDay() {
     return false;
   }
-}
 
+  /** Events are displayed in a grid of times
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean supportsLayout() {
+    return true;
+  }
+}
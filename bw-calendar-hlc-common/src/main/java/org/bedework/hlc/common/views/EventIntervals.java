@@ -0,0 +1,252 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.views;
+
+import org.bedework.calfacade.BwDateTime;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.hlc.common.EventFormatter;
+import org.bedework.util.calendar.IcalDefs;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/** The start and end of each event in a view converted once to
+ * primitive values so that selecting the events for a day is a scan
+ * over arrays sorted by start.
+ *
+ * <p>Values are UTC epoch seconds doubled. A date only value is one
+ * less than midnight of that date, so values sort exactly as the UTC
+ * strings compared by BwEvent.inDateTimeRange.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+class EventIntervals implements Serializable {
+  static final byte flagFloating = 1;
+  static final byte flagAllDay = 2;
+  static final byte flagNoStart = 4;
+
+  /* Could not convert - use the string comparison */
+  static final byte flagUnparsed = 8;
+
+  static final long unparsed = Long.MIN_VALUE;
+
+  /* Sorted by start - no start todos at the end */
+  private final EventFormatter[] efs;
+  private final long[] starts;
+  private final long[] ends;
+  private final byte[] flags;
+
+  /* Number of entries with a start */
+  private final int numTimed;
+
+  EventIntervals(final Collection<EventFormatter> vals) {
+    final int sz = vals.size();
+    final EventFormatter[] in = vals.toArray(new EventFormatter[0]);
+    final long[] st = new long[sz];
+    final long[] en = new long[sz];
+    final byte[] fl = new byte[sz];
+
+    for (int i = 0; i < sz; i++) {
+      final BwEvent ev = in[i].getEvent();
+
+      if ((ev.getEntityType() == IcalDefs.entityTypeTodo) &&
+              ev.getNoStart()) {
+        fl[i] = flagNoStart;
+        st[i] = Long.MAX_VALUE;
+        continue;
+      }
+
+      final BwDateTime dtstart = ev.getDtstart();
+      byte f = 0;
+
+      if (dtstart.getFloating()) {
+        f |= flagFloating;
+      }
+
+      if (dtstart.getDateType()) {
+        f |= flagAllDay;
+      }
+
+      st[i] = encode(dtstart.getDate());
+      en[i] = encode(ev.getDtend().getDate());
+
+      if ((st[i] == unparsed) || (en[i] == unparsed)) {
+        f |= flagUnparsed;
+        st[i] = Long.MIN_VALUE;
+      }
+
+      fl[i] = f;
+    }
+
+    final Integer[] order = new Integer[sz];
+    for (int i = 0; i < sz; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> Long.compare(st[a], st[b]));
+
+    efs = new EventFormatter[sz];
+    starts = new long[sz];
+    ends = new long[sz];
+    flags = new byte[sz];
+
+    int timed = 0;
+    for (int i = 0; i < sz; i++) {
+      final int j = order[i];
+      efs[i] = in[j];
+      starts[i] = st[j];
+      ends[i] = en[j];
+      flags[i] = fl[j];
+
+      if ((fl[j] & flagNoStart) == 0) {
+        timed++;
+      }
+    }
+
+    numTimed = timed;
+  }
+
+  /**
+   * @return number of events
+   */
+  int size() {
+    return efs.length;
+  }
+
+  /** Select the events overlapping the given range.
+   *
+   * @param start encoded start of range
+   * @param end encoded end of range (exclusive)
+   * @param startUtc UTC start - for unparsed values
+   * @param endUtc UTC end - for unparsed values
+   * @param today true to include todos with no start
+   * @return events in start order
+   */
+  List<EventFormatter> select(final long start,
+                              final long end,
+                              final String startUtc,
+                              final String endUtc,
+                              final boolean today) {
+    final List<EventFormatter> res = new ArrayList<>();
+
+    /* Everything from here on starts at or after the end */
+    final int limit = firstAtOrAfter(end);
+
+    for (int i = 0; i < limit; i++) {
+      if ((flags[i] & flagUnparsed) != 0) {
+        if (efs[i].getEvent().inDateTimeRange(startUtc, endUtc)) {
+          res.add(efs[i]);
+        }
+        continue;
+      }
+
+      final long e = ends[i];
+
+      if ((e > start) || ((starts[i] == e) && (e >= start))) {
+        res.add(efs[i]);
+      }
+    }
+
+    if (today) {
+      for (int i = numTimed; i < efs.length; i++) {
+        res.add(efs[i]);
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * @param millis UTC epoch millis
+   * @return encoded value
+   */
+  static long encodeMillis(final long millis) {
+    return Math.floorDiv(millis, 1000) * 2;
+  }
+
+  /**
+   * @param val UTC yyyyMMddTHHmmssZ or yyyyMMdd
+   * @return encoded value or unparsed
+   */
+  static long encode(final String val) {
+    if ((val == null) || (val.length() < 8)) {
+      return unparsed;
+    }
+
+    try {
+      final int year = digits(val, 0, 4);
+      final int month = digits(val, 4, 2);
+      final int day = digits(val, 6, 2);
+
+      final long secs =
+              LocalDate.of(year, month, day).toEpochDay() * 86400;
+
+      if (val.length() == 8) {
+        return secs * 2 - 1;
+      }
+
+      if ((val.length() < 15) || (val.charAt(8) != 'T')) {
+        return unparsed;
+      }
+
+      return (secs +
+              digits(val, 9, 2) * 3600L +
+              digits(val, 11, 2) * 60L +
+              digits(val, 13, 2)) * 2;
+    } catch (final Throwable t) {
+      return unparsed;
+    }
+  }
+
+  /* Index of first timed entry with start >= val */
+  private int firstAtOrAfter(final long val) {
+    int lo = 0;
+    int hi = numTimed;
+
+    while (lo < hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (starts[mid] < val) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+
+  private static int digits(final String val,
+                            final int pos,
+                            final int len) {
+    int res = 0;
+
+    for (int i = pos; i < pos + len; i++) {
+      final char c = val.charAt(i);
+      if ((c < '0') || (c > '9')) {
+        throw new NumberFormatException(val);
+      }
+      res = res * 10 + (c - '0');
+    }
+
+    return res;
+  }
+}
@@ -0,0 +1,301 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.views;
+
+import org.bedework.base.ToString;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.hlc.common.EventFormatter;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/** The position of a timed event in a day grid. Overlapping events are
+ * placed side by side in columns. All events in a group of overlapping
+ * events share the same number of columns. An event may span further
+ * columns to its right if nothing in them overlaps it.
+ *
+ * <p>Date only events and tasks with no start are not laid out - they
+ * belong in the all day area of the grid.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class EventLayout implements Serializable {
+  private final EventFormatter event;
+  private int column;
+  private int columns;
+  private int span = 1;
+
+  /* Encoded times clipped to the day */
+  private final long start;
+  private final long end;
+
+  private EventLayout(final EventFormatter event,
+                      final long start,
+                      final long end) {
+    this.event = event;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * @return the event
+   */
+  public EventFormatter getEvent() {
+    return event;
+  }
+
+  /**
+   * @return 0 based column
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  /**
+   * @return number of columns in this group of overlapping events
+   */
+  public int getColumns() {
+    return columns;
+  }
+
+  /**
+   * @return number of columns occupied - at least 1
+   */
+  public int getSpan() {
+    return span;
+  }
+
+  /** Lay out the events of one day. Events are swept in start order
+   * assigning each the lowest free column. A group ends when no
+   * event is active. Spans are set by a second sweep of each group so
+   * the whole layout is O(n log n).
+   *
+   * @param efs events for the day
+   * @param dayStart UTC millis
+   * @param dayEnd UTC millis (exclusive)
+   * @return layouts in start order
+   */
+  static List<EventLayout> layout(final Collection<EventFormatter> efs,
+                                  final long dayStart,
+                                  final long dayEnd) {
+    final long ds = EventIntervals.encodeMillis(dayStart);
+    final long de = EventIntervals.encodeMillis(dayEnd);
+
+    final List<EventLayout> els = new ArrayList<>(efs.size());
+
+    for (final EventFormatter ef: efs) {
+      final BwEvent ev = ef.getEvent();
+
+      if (ev.getNoStart() || ev.getDtstart().getDateType()) {
+        continue;
+      }
+
+      final long st = EventIntervals.encode(ev.getDtstart().getDate());
+      final long en = EventIntervals.encode(ev.getDtend().getDate());
+
+      if ((st == EventIntervals.unparsed) ||
+              (en == EventIntervals.unparsed)) {
+        continue;
+      }
+
+      final long cst = Math.max(st, ds);
+      /* Zero length events still take up space */
+      final long cen = Math.max(Math.min(en, de), cst + 1);
+
+      els.add(new EventLayout(ef, cst, cen));
+    }
+
+    els.sort((a, b) -> {
+      final int res = Long.compare(a.start, b.start);
+      if (res != 0) {
+        return res;
+      }
+
+      return Long.compare(b.end, a.end);
+    });
+
+    /* active columns ordered by end, free columns lowest first */
+    final PriorityQueue<EventLayout> active =
+            new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+    final PriorityQueue<Integer> free = new PriorityQueue<>();
+
+    int groupStart = 0;
+    int groupColumns = 0;
+
+    for (int i = 0; i < els.size(); i++) {
+      final EventLayout el = els.get(i);
+
+      while (!active.isEmpty() && (active.peek().end <= el.start)) {
+        free.add(active.poll().column);
+      }
+
+      if (active.isEmpty() && (i > groupStart)) {
+        finishGroup(els, groupStart, i, groupColumns);
+        groupStart = i;
+        groupColumns = 0;
+        free.clear();
+      }
+
+      if (free.isEmpty()) {
+        el.column = groupColumns;
+        groupColumns++;
+      } else {
+        el.column = free.poll();
+      }
+
+      active.add(el);
+    }
+
+    if (!els.isEmpty()) {
+      finishGroup(els, groupStart, els.size(), groupColumns);
+    }
+
+    return els;
+  }
+
+  /* Set the column count and spans for the group [from, to). The
+   * group is swept again in the same order as the column assignment.
+   * An event can span up to the nearest column to its right that is
+   * in use at any time during its life. Columns in use when it starts
+   * come from the set of active columns. A later event takes the
+   * lowest free column so every column to its left is in use - it
+   * lowers the limit of all of them at once.
+   */
+  private static void finishGroup(final List<EventLayout> els,
+                                  final int from,
+                                  final int to,
+                                  final int numColumns) {
+    final PriorityQueue<EventLayout> active =
+            new PriorityQueue<>((a, b) -> Long.compare(a.end, b.end));
+    final TreeSet<Integer> activeColumns = new TreeSet<>();
+    final ColumnLimits limits = new ColumnLimits(numColumns);
+
+    for (int i = from; i < to; i++) {
+      final EventLayout el = els.get(i);
+      el.columns = numColumns;
+
+      while (!active.isEmpty() && (active.peek().end <= el.start)) {
+        setSpan(active.poll(), activeColumns, limits);
+      }
+
+      limits.lower(el.column, el.column);
+
+      final Integer next = activeColumns.higher(el.column);
+      limits.set(el.column, (next == null) ? numColumns : next);
+
+      activeColumns.add(el.column);
+      active.add(el);
+    }
+
+    while (!active.isEmpty()) {
+      setSpan(active.poll(), activeColumns, limits);
+    }
+  }
+
+  private static void setSpan(final EventLayout el,
+                              final TreeSet<Integer> activeColumns,
+                              final ColumnLimits limits) {
+    activeColumns.remove(el.column);
+    el.span = limits.get(el.column) - el.column;
+  }
+
+  /* A value per column. Lowering every value left of a column and
+   * reading or replacing one value are O(log columns). Each node holds
+   * a minimum still to be applied to everything below it.
+   */
+  private static class ColumnLimits {
+    private final int size;
+    private final int height;
+    private final int[] mins;
+
+    ColumnLimits(final int numColumns) {
+      int sz = 1;
+      while (sz < numColumns) {
+        sz <<= 1;
+      }
+
+      size = sz;
+      height = Integer.numberOfTrailingZeros(sz);
+      mins = new int[2 * sz];
+      Arrays.fill(mins, Integer.MAX_VALUE);
+    }
+
+    /* Lower the values of columns [0, to) to at most val */
+    void lower(final int to, final int val) {
+      int l = size;
+      int r = size + to;
+
+      while (l < r) {
+        if ((l & 1) != 0) {
+          mins[l] = Math.min(mins[l], val);
+          l++;
+        }
+
+        if ((r & 1) != 0) {
+          r--;
+          mins[r] = Math.min(mins[r], val);
+        }
+
+        l >>>= 1;
+        r >>>= 1;
+      }
+    }
+
+    int get(final int column) {
+      int res = Integer.MAX_VALUE;
+
+      for (int p = size + column; p > 0; p >>>= 1) {
+        res = Math.min(res, mins[p]);
+      }
+
+      return res;
+    }
+
+    void set(final int column, final int val) {
+      final int leaf = size + column;
+
+      /* Push pending minimums down so they no longer apply */
+      for (int h = height; h > 0; h--) {
+        final int p = leaf >>> h;
+
+        mins[2 * p] = Math.min(mins[2 * p], mins[p]);
+        mins[2 * p + 1] = Math.min(mins[2 * p + 1], mins[p]);
+        mins[p] = Integer.MAX_VALUE;
+      }
+
+      mins[leaf] = val;
+    }
+  }
+
+  @Override
+  public String toString() {
+    final ToString ts = new ToString(this);
+
+    ts.append("column", column);
+    ts.append("columns", columns);
+    ts.append("span", span);
+
+    return ts.toString();
+  }
+}
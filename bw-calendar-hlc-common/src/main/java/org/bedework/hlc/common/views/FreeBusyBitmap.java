@@ -0,0 +1,356 @@
+/* ********************************************************************
+    Licensed to Jasig under one or more contributor license
+    agreements. See the NOTICE file distributed with this work
+    for additional information regarding copyright ownership.
+    Jasig licenses this file to you under the Apache License,
+    Version 2.0 (the "License"); you may not use this file
+    except in compliance with the License. You may obtain a
+    copy of the License at:
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on
+    an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied. See the License for the
+    specific language governing permissions and limitations
+    under the License.
+*/
+package org.bedework.hlc.common.views;
+
+import org.bedework.base.ToString;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/** Busy time for a range of days held as one bit per time slot. Each
+ * day starts on a word boundary so days can be combined a word at a
+ * time. Slots are measured from local midnight; on a day longer than
+ * 24 hours the extra time falls into the last slot.
+ *
+ * <p>Bitmaps for the same days and slot size may be combined, e.g.
+ * the union of several principals gives the times when anyone is
+ * busy, the complement of that the times everyone is free.</p>
+ *
+ * @author Mike Douglass   douglm  rpi.edu
+ */
+public class FreeBusyBitmap implements Serializable {
+  private static final int minutesPerDay = 24 * 60;
+
+  private final String firstDate;
+  private final int numDays;
+  private final int minutesPerSlot;
+  private final int slotsPerDay;
+  private final int wordsPerDay;
+
+  private final long[] bits;
+
+  /**
+   * @param firstDate first day as yyyyMMdd
+   * @param numDays number of days
+   * @param minutesPerSlot size of each slot - greater than zero
+   */
+  public FreeBusyBitmap(final String firstDate,
+                        final int numDays,
+                        final int minutesPerSlot) {
+    if (minutesPerSlot <= 0) {
+      throw new IllegalArgumentException(
+              "minutesPerSlot must be positive: " + minutesPerSlot);
+    }
+
+    this.firstDate = firstDate;
+    this.numDays = numDays;
+    this.minutesPerSlot = minutesPerSlot;
+
+    slotsPerDay = (minutesPerDay + minutesPerSlot - 1) / minutesPerSlot;
+    wordsPerDay = (slotsPerDay + 63) >>> 6;
+    bits = new long[numDays * wordsPerDay];
+  }
+
+  private FreeBusyBitmap(final FreeBusyBitmap template) {
+    this(template.firstDate, template.numDays, template.minutesPerSlot);
+  }
+
+  /**
+   * @return first day as yyyyMMdd
+   */
+  public String getFirstDate() {
+    return firstDate;
+  }
+
+  /**
+   * @return number of days
+   */
+  public int getNumDays() {
+    return numDays;
+  }
+
+  /**
+   * @return size of each slot
+   */
+  public int getMinutesPerSlot() {
+    return minutesPerSlot;
+  }
+
+  /**
+   * @return slots in each day
+   */
+  public int getSlotsPerDay() {
+    return slotsPerDay;
+  }
+
+  /** Mark a range of slots busy.
+   *
+   * @param day 0 based
+   * @param fromSlot first slot
+   * @param toSlot end slot (exclusive)
+   */
+  public void setBusy(final int day,
+                      final int fromSlot,
+                      final int toSlot) {
+    final int from = Math.max(0, fromSlot);
+    final int to = Math.min(slotsPerDay, toSlot);
+
+    if ((day < 0) || (day >= numDays) || (from >= to)) {
+      return;
+    }
+
+    final int base = day * wordsPerDay;
+    final int fw = from >>> 6;
+    final int lw = (to - 1) >>> 6;
+
+    final long firstMask = -1L << from;
+    final long lastMask = -1L >>> -to;
+
+    if (fw == lw) {
+      bits[base + fw] |= firstMask & lastMask;
+      return;
+    }
+
+    bits[base + fw] |= firstMask;
+
+    for (int w = fw + 1; w < lw; w++) {
+      bits[base + w] = -1L;
+    }
+
+    bits[base + lw] |= lastMask;
+  }
+
+  /** Mark the whole day busy.
+   *
+   * @param day 0 based
+   */
+  public void setBusy(final int day) {
+    setBusy(day, 0, slotsPerDay);
+  }
+
+  /**
+   * @param day 0 based
+   * @param slot in day
+   * @return true if busy
+   */
+  public boolean isBusy(final int day, final int slot) {
+    if ((slot < 0) || (slot >= slotsPerDay)) {
+      return false;
+    }
+
+    return (bits[day * wordsPerDay + (slot >>> 6)] & (1L << slot)) != 0;
+  }
+
+  /**
+   * @param day 0 based
+   * @return number of busy slots in the day
+   */
+  public int getBusyCount(final int day) {
+    final int base = day * wordsPerDay;
+    int res = 0;
+
+    for (int w = 0; w < wordsPerDay; w++) {
+      res += Long.bitCount(bits[base + w]);
+    }
+
+    return res;
+  }
+
+  /**
+   * @param day 0 based
+   * @param fromSlot where to start
+   * @return next busy slot at or after fromSlot or -1
+   */
+  public int nextBusy(final int day, final int fromSlot) {
+    return next(day, fromSlot, false);
+  }
+
+  /**
+   * @param day 0 based
+   * @param fromSlot where to start
+   * @return next free slot at or after fromSlot or -1
+   */
+  public int nextFree(final int day, final int fromSlot) {
+    return next(day, fromSlot, true);
+  }
+
+  /**
+   * @param day 0 based
+   * @return busy periods as [fromSlot, toSlot) pairs
+   */
+  public List<int[]> getBusyPeriods(final int day) {
+    final List<int[]> res = new ArrayList<>();
+
+    int slot = nextBusy(day, 0);
+    while (slot >= 0) {
+      int end = nextFree(day, slot);
+      if (end < 0) {
+        end = slotsPerDay;
+      }
+
+      res.add(new int[]{slot, end});
+      slot = nextBusy(day, end);
+    }
+
+    return res;
+  }
+
+  /**
+   * @param val compatible bitmap
+   * @return new bitmap busy where either is busy
+   */
+  public FreeBusyBitmap union(final FreeBusyBitmap val) {
+    checkCompatible(val);
+
+    final FreeBusyBitmap res = new FreeBusyBitmap(this);
+    for (int i = 0; i < bits.length; i++) {
+      res.bits[i] = bits[i] | val.bits[i];
+    }
+
+    return res;
+  }
+
+  /**
+   * @param val compatible bitmap
+   * @return new bitmap busy where both are busy
+   */
+  public FreeBusyBitmap intersection(final FreeBusyBitmap val) {
+    checkCompatible(val);
+
+    final FreeBusyBitmap res = new FreeBusyBitmap(this);
+    for (int i = 0; i < bits.length; i++) {
+      res.bits[i] = bits[i] & val.bits[i];
+    }
+
+    return res;
+  }
+
+  /**
+   * @return new bitmap busy where this is free
+   */
+  public FreeBusyBitmap complement() {
+    final FreeBusyBitmap res = new FreeBusyBitmap(this);
+    for (int i = 0; i < bits.length; i++) {
+      res.bits[i] = ~bits[i];
+    }
+
+    res.clearUnused();
+
+    return res;
+  }
+
+  /**
+   * @param vals at least one - all compatible
+   * @return bitmap busy where any is busy
+   */
+  public static FreeBusyBitmap unionOf(
+          final Collection<FreeBusyBitmap> vals) {
+    final Iterator<FreeBusyBitmap> it = vals.iterator();
+    FreeBusyBitmap res = it.next();
+
+    while (it.hasNext()) {
+      res = res.union(it.next());
+    }
+
+    return res;
+  }
+
+  /**
+   * @param vals at least one - all compatible
+   * @return bitmap busy where all are busy
+   */
+  public static FreeBusyBitmap intersectionOf(
+          final Collection<FreeBusyBitmap> vals) {
+    final Iterator<FreeBusyBitmap> it = vals.iterator();
+    FreeBusyBitmap res = it.next();
+
+    while (it.hasNext()) {
+      res = res.intersection(it.next());
+    }
+
+    return res;
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private int next(final int day,
+                   final int fromSlot,
+                   final boolean free) {
+    if ((fromSlot < 0) || (fromSlot >= slotsPerDay)) {
+      return -1;
+    }
+
+    final int base = day * wordsPerDay;
+    int w = fromSlot >>> 6;
+    long word = free ? ~bits[base + w] : bits[base + w];
+    word &= -1L << fromSlot;
+
+    for (;;) {
+      if (word != 0) {
+        final int res = (w << 6) + Long.numberOfTrailingZeros(word);
+        return (res < slotsPerDay) ? res : -1;
+      }
+
+      w++;
+      if (w == wordsPerDay) {
+        return -1;
+      }
+
+      word = free ? ~bits[base + w] : bits[base + w];
+    }
+  }
+
+  /* Bits past the last slot of each day stay clear */
+  private void clearUnused() {
+    final int used = slotsPerDay & 63;
+    if (used == 0) {
+      return;
+    }
+
+    final long mask = -1L >>> -used;
+    for (int d = 0; d < numDays; d++) {
+      bits[d * wordsPerDay + wordsPerDay - 1] &= mask;
+    }
+  }
+
+  private void checkCompatible(final FreeBusyBitmap val) {
+    if ((val.numDays != numDays) ||
+            (val.minutesPerSlot != minutesPerSlot) ||
+            !val.firstDate.equals(firstDate)) {
+      throw new IllegalArgumentException(
+              "Incompatible free/busy: " + val + " and " + this);
+    }
+  }
+
+  @Override
+  public String toString() {
+    final ToString ts = new ToString(this);
+
+    ts.append("firstDate", firstDate);
+    ts.append("numDays", numDays);
+    ts.append("minutesPerSlot", minutesPerSlot);
+
+    return ts.toString();
+  }
+}
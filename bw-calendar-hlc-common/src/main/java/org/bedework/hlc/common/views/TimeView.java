@@ -30,7 +30,9 @@ import org.bedework.calfacade.util.BwDateTimeUtil;
 import org.bedework.hlc.common.BedeworkDefs;
 import org.bedework.hlc.common.CalendarFormatter;
 import org.bedework.hlc.common.CalendarInfo;
+import org.bedework.hlc.common.ConfigCommon;
 import org.bedework.hlc.common.EventFormatter;
+import org.bedework.hlc.common.metrics.JfrEvents;
 import org.bedework.util.calendar.IcalDefs;
 import org.bedework.util.logging.BwLogger;
 import org.bedework.util.logging.Logged;
@@ -41,11 +43,17 @@ import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.FieldPosition;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import static org.bedework.util.dates.DateFormatter.icalDateFormat;
 import static org.bedework.util.dates.DateFormatter.icalDateTimeFormat;
@@ -89,6 +97,9 @@ public class TimeView implements Logged, Serializable {
    */
   protected Map<String, EventFormatter> events;
 
+  /* Event start and end as primitives - built from events */
+  private EventIntervals intervals;
+
   /** set on the first call to getTimePeriodInfo
    */
   private TimeViewDailyInfo[] tvdis;
@@ -99,6 +110,65 @@ public class TimeView implements Logged, Serializable {
 
   private final FilterBase filter;
 
+  /* Adaptive limits - zero or less means no limit */
+  private int maxViewEvents;
+  private int maxDayEvents;
+
+  /* Set by putEvents when there are more than maxViewEvents */
+  private boolean summaryMode;
+
+  /* Summary mode: dates as yyyyMMdd and counts, indexed from firstDay */
+  private String[] dayDates;
+  private int[] dayCounts;
+
+  /* Summary mode: days expanded on request */
+  private Map<String, Collection<EventFormatter>> expandedDays;
+
+  private transient DayExpander dayExpander;
+
+  /* Lazy recurrences: masters keyed by href, the recurrence ids of
+   * their overrides, the instances for the whole view once fetched and
+   * those selected for each day so far.
+   */
+  private Map<String, EventFormatter> masters;
+  private Map<String, Set<String>> overrides;
+  private List<EventFormatter> viewInstances;
+  private Map<String, List<EventFormatter>> dayInstances;
+
+  private transient RecurrenceExpander recurrenceExpander;
+
+  /** Used in summary mode to fetch the events for a single day.
+   */
+  public interface DayExpander {
+    /**
+     * @param start of the day
+     * @param end of the day (exclusive)
+     * @return events for the day - never null
+     */
+    Collection<EventFormatter> getEvents(BwDateTime start,
+                                         BwDateTime end);
+  }
+
+  /** Used when the view is given recurring masters rather than
+   * instances. Called once, for every master and the whole view, when
+   * the view first needs instances.
+   */
+  public interface RecurrenceExpander {
+    /**
+     * @param masters the recurring masters
+     * @param start of the view
+     * @param end of the view (exclusive)
+     * @param overridden master href to the recurrence ids of overrides
+     *                   held by the view - these must not be returned
+     * @return instances overlapping the range - never null
+     */
+    Collection<EventFormatter> getInstances(
+            Collection<EventFormatter> masters,
+            BwDateTime start,
+            BwDateTime end,
+            Map<String, Set<String>> overridden);
+  }
+
   /**
    *
    */
@@ -236,6 +306,77 @@ public class TimeView implements Logged, Serializable {
     viewEnd = getBwDate(lastDay).getNextDay();
   }
 
+  /** Create a view of the given type with the limits from the
+   * configuration applied. Recurrences are always expanded by the
+   * caller and, with no day expander, the view always holds the
+   * events rather than switching to per-day counts.
+   *
+   * @param viewPeriod as defined in BedeworkDefs
+   * @param curDay date within the view
+   * @param filter non-null to filter the results
+   * @param config supplies limits and year view settings
+   * @return the view
+   */
+  public static TimeView make(final int viewPeriod,
+                              final CalendarFormatter curDay,
+                              final FilterBase filter,
+                              final ConfigCommon config) {
+    return make(viewPeriod, curDay, filter, config, null, null);
+  }
+
+  /** Create a view of the given type with the settings from the
+   * configuration applied. If the configuration asks for lazy
+   * recurrences and an expander is supplied the view expands
+   * recurring masters itself - getLazyRecurrences then tells the
+   * caller to fetch masters and overrides only.
+   *
+   * <p>The view only switches to per-day counts when it has too many
+   * events if it is given a day expander to fetch the days.</p>
+   *
+   * @param viewPeriod as defined in BedeworkDefs
+   * @param curDay date within the view
+   * @param filter non-null to filter the results
+   * @param config supplies limits and year view settings
+   * @param expander for recurring masters - may be null
+   * @param dayExpander fetches a day's events in summary mode - may
+   *                    be null
+   * @return the view
+   */
+  public static TimeView make(final int viewPeriod,
+                              final CalendarFormatter curDay,
+                              final FilterBase filter,
+                              final ConfigCommon config,
+                              final RecurrenceExpander expander,
+                              final DayExpander dayExpander) {
+    final TimeView tv = switch (viewPeriod) {
+      case BedeworkDefs.todayView, BedeworkDefs.dayView ->
+              new DayView(curDay, filter);
+      case BedeworkDefs.monthView ->
+              new MonthView(curDay, filter);
+      case BedeworkDefs.yearView ->
+              new YearView(curDay, config.getShowYearData(), filter);
+      default -> new WeekView(curDay, filter);
+    };
+
+    tv.configure(config);
+
+    if (config.getLazyRecurrences()) {
+      tv.setRecurrenceExpander(expander);
+    }
+
+    tv.setDayExpander(dayExpander);
+
+    return tv;
+  }
+
+  /** Apply the view settings from the configuration.
+   *
+   * @param config supplies limits
+   */
+  public void configure(final ConfigCommon config) {
+    setLimits(config.getMaxViewEvents(), config.getMaxDayEvents());
+  }
+
   /**
    * @return CalendarInfo
    */
@@ -350,11 +491,86 @@ public class TimeView implements Logged, Serializable {
     return showData;
   }
 
+  /** Set the limits for adaptive views. If putEvents is handed more
+   * than maxViewEvents and there is a DayExpander the view holds only
+   * per-day counts and days are expanded on request through the
+   * DayExpander.
+   *
+   * @param maxViewEvents zero or less for no limit
+   * @param maxDayEvents max returned for any day - zero or less for
+   *                     no limit
+   */
+  public void setLimits(final int maxViewEvents,
+                        final int maxDayEvents) {
+    this.maxViewEvents = maxViewEvents;
+    this.maxDayEvents = maxDayEvents;
+  }
+
+  /**
+   * @param val used to fetch a days events in summary mode
+   */
+  public void setDayExpander(final DayExpander val) {
+    dayExpander = val;
+  }
+
+  /** If set, putEvents holds recurring masters and instances are
+   * generated for a day when its events are first asked for. The
+   * caller should then fetch masters and overrides only.
+   *
+   * @param val expander or null to expect expanded instances
+   */
+  public void setRecurrenceExpander(final RecurrenceExpander val) {
+    recurrenceExpander = val;
+  }
+
+  /**
+   * @return true if this view expands recurring masters itself
+   */
+  public boolean getLazyRecurrences() {
+    return recurrenceExpander != null;
+  }
+
+  /**
+   * @return true if this view holds only counts for each day
+   */
+  public boolean isSummaryMode() {
+    return summaryMode;
+  }
+
   /** Called to force a refresh of the events. Call ONCE only per request.
    */
   public void refreshEvents() {
     events = null;
+    intervals = null;
     tvdis = null;
+    summaryMode = false;
+    dayDates = null;
+    dayCounts = null;
+    expandedDays = null;
+    masters = null;
+    overrides = null;
+    viewInstances = null;
+    dayInstances = null;
+  }
+
+  /** Return the number of events for the given day. This may be
+   * larger than the number returned by getDaysEvents if there is a
+   * limit on events per day.
+   *
+   * @param   date    Calendar object defining day
+   * @return  number of events
+   */
+  public int getDayEventCount(final Calendar date) {
+    if (!summaryMode) {
+      return selectDaysEvents(date).size();
+    }
+
+    final int i = dayIndex(icalDateFormat.fromDate(date.getTime()));
+    if (i < 0) {
+      return 0;
+    }
+
+    return dayCounts[i];
   }
 
   /** Return the events for the given day as an array of value objects
@@ -363,27 +579,63 @@ public class TimeView implements Logged, Serializable {
    * @return  Collection of EventFormatter being one days events or empty for no events.
    */
   public Collection<EventFormatter> getDaysEvents(final Calendar date) {
+    final Collection<EventFormatter> res;
+
+    if (summaryMode) {
+      res = getExpandedDay(date);
+    } else {
+      res = selectDaysEvents(date);
+    }
+
+    if ((maxDayEvents <= 0) || (res.size() <= maxDayEvents)) {
+      return res;
+    }
+
+    return new ArrayList<>(res).subList(0, maxDayEvents);
+  }
+
+  /** Override this for views displayed as a grid of times.
+   *
+   * @return true if getDaysLayout should lay out events
+   */
+  public boolean supportsLayout() {
+    return false;
+  }
+
+  /** Lay out the timed events returned by getDaysEvents in columns.
+   *
+   * @param   date    Calendar object defining day
+   * @return layouts in start order - empty if not supported
+   */
+  public List<EventLayout> getDaysLayout(final Calendar date) {
+    if (!supportsLayout()) {
+      return new ArrayList<>();
+    }
+
+    final var dtAsString = icalDateFormat.fromDate(date.getTime());
+    final DayBoundaries db = getDayBoundaries(dtAsString);
+    final int dayIndex = dayOfYearIndex(db, dtAsString);
+
+    return EventLayout.layout(getDaysEvents(date),
+                              db.getStart(dayIndex),
+                              db.getEnd(dayIndex));
+  }
+
+  private Collection<EventFormatter> selectDaysEvents(final Calendar date) {
+    final var jfr = new JfrEvents.DaysEvents();
+    jfr.begin();
+
     final ArrayList<EventFormatter> al = new ArrayList<>();
     final var dtAsString = icalDateFormat.fromDate(date.getTime());
 
     //BwDateTime startDt = getBwDate(date.getDateDigits());
     //BwDateTime endDt = startDt.getNextDay();
-    final String tzid;
-    try {
-      tzid = Timezones.getDefaultTz().getID();
-    } catch (final TimezonesException tze) {
-      throw new RuntimeException(tze);
-    }
-    final BwDateTime startDt =
-            BwDateTimeUtil.getDateTime(dtAsString + "T000000",
-                                       false,
-                                       false,
-                                       tzid);
-    final BwDateTime endDt = startDt.addDur("P1D");
+    final DayBoundaries db = getDayBoundaries(dtAsString);
+    final int dayIndex = dayOfYearIndex(db, dtAsString);
 
     // UTC times
-    final String start = startDt.getDate();
-    final String end = endDt.getDate();
+    final String start = db.getStartUtc(dayIndex);
+    final String end = db.getEndUtc(dayIndex);
 
     // local times - for floating check
     //String startLocal = startDt.getDtval();
@@ -399,21 +651,22 @@ public class TimeView implements Logged, Serializable {
      */
     final boolean today = dtAsString.equals(icalDateFormat.fromDate());
 
-    for (final EventFormatter ef: events.values()) {
-      final EventInfo ei = ef.getEventInfo();
-      final BwEvent ev = ei.getEvent();
+    if (intervals == null) {
+      intervals = new EventIntervals(events.values());
+    }
 
-      if ((ev.getEntityType() == IcalDefs.entityTypeTodo)  &&
-           ev.getNoStart()) {
-        if (today) {
-          al.add(ef);
-        }
+    al.addAll(intervals.select(
+            EventIntervals.encodeMillis(db.getStart(dayIndex)),
+            EventIntervals.encodeMillis(db.getEnd(dayIndex)),
+            start, end, today));
 
-        continue;
-      }
+    if ((masters != null) && !masters.isEmpty()) {
+      final var instances = getDayInstances(dtAsString, start, end);
 
-      if (ev.inDateTimeRange(start, end)) {
-        al.add(ef);
+      if (!instances.isEmpty()) {
+        al.addAll(instances);
+        al.sort((o1, o2) -> o1.getEvent().getDtstart().getDate().compareTo(
+                o2.getEvent().getDtstart().getDate()));
       }
     }
 
@@ -481,9 +734,85 @@ public class TimeView implements Logged, Serializable {
       }
     }*/
 
+    jfr.date = dtAsString;
+    jfr.candidates = intervals.size();
+    jfr.events = al.size();
+    jfr.commit();
+
     return al;
   }
 
+  /** Fold the events of this view into busy time for each day.
+   * Transparent and cancelled events and tasks are ignored. Date only
+   * events make the whole day busy. In summary mode days are expanded
+   * through the DayExpander.
+   *
+   * @param minutesPerSlot granularity - normally the configured
+   *                       minIncrement
+   * @return busy time - null if there are no events
+   */
+  public FreeBusyBitmap getFreeBusy(final int minutesPerSlot) {
+    if (events == null) {
+      return null;
+    }
+
+    final String[] bounds = getDayBoundaries();
+    final FreeBusyBitmap res =
+            new FreeBusyBitmap(dayDates[0], dayDates.length,
+                               minutesPerSlot);
+    /* Times and the slot size are all in EventIntervals units */
+    final long slotSize = EventIntervals.encodeMillis(
+            TimeUnit.MINUTES.toMillis(minutesPerSlot));
+    final Calendar c = (Calendar)getFirstDay().clone();
+
+    for (int day = 0; day < dayDates.length; day++) {
+      final long dayStart = EventIntervals.encode(bounds[day]);
+      final long dayEnd = EventIntervals.encode(bounds[day + 1]);
+
+      final Collection<EventFormatter> efs;
+      if (summaryMode) {
+        efs = getExpandedDay(c);
+      } else {
+        efs = selectDaysEvents(c);
+      }
+
+      c.add(Calendar.DATE, 1);
+
+      for (final EventFormatter ef: efs) {
+        final BwEvent ev = ef.getEvent();
+
+        if ((ev.getEntityType() == IcalDefs.entityTypeTodo) ||
+                "TRANSPARENT".equals(ev.getTransparency()) ||
+                BwEvent.statusCancelled.equals(ev.getStatus())) {
+          continue;
+        }
+
+        if (ev.getDtstart().getDateType()) {
+          res.setBusy(day);
+          continue;
+        }
+
+        final long st = EventIntervals.encode(ev.getDtstart().getDate());
+        final long en = EventIntervals.encode(ev.getDtend().getDate());
+
+        if ((st == EventIntervals.unparsed) ||
+                (en == EventIntervals.unparsed)) {
+          res.setBusy(day);
+          continue;
+        }
+
+        final long from = Math.max(st, dayStart) - dayStart;
+        final long to = Math.min(en, dayEnd) - dayStart;
+
+        res.setBusy(day,
+                    (int)(from / slotSize),
+                    (int)((to + slotSize - 1) / slotSize));
+      }
+    }
+
+    return res;
+  }
+
   /** Return an array of the days of the week indexed from 0
    * Elements have been adjusted so that the first day of the week is at 0
    *
@@ -550,6 +879,10 @@ public class TimeView implements Logged, Serializable {
 
     int weekOfYear = 1;
 
+    /** Number of day entries built
+     */
+    int days;
+
     /** Need this so we can flag end of month
      */
     TimeViewDailyInfo prevTvdi;
@@ -568,6 +901,9 @@ public class TimeView implements Logged, Serializable {
       return tvdis;
     }
 
+    final var jfr = new JfrEvents.TimePeriodInfo();
+    jfr.begin();
+
     try {
       final GtpiData gtpi = new GtpiData();
 
@@ -648,12 +984,17 @@ public class TimeView implements Logged, Serializable {
       tvdis = new TimeViewDailyInfo[1];
       tvdis[0] = yearTvdi;
 
+      jfr.viewType = getViewType();
+      jfr.days = gtpi.days;
+
       return tvdis;
     } catch (final Throwable t) {
       error("getTimePeriodInfo", t);
       //XXX We need an error object
 
       return null;
+    } finally {
+      jfr.commit();
     }
   }
 
@@ -661,14 +1002,342 @@ public class TimeView implements Logged, Serializable {
     return events != null;
   }
 
+  /**
+   * @param sres entries whose entities are EventFormatter objects
+   */
   public void putEvents(final Collection<SearchResultEntry> sres) {
-    events = new HashMap<>(sres.size());
+    putEvents(sres, null);
+  }
+
+  /** Entities may be EventInfo objects. The count is checked first
+   * and formatters are only built, with formatter, if the view is
+   * going to hold the events. In summary mode none are built.
+   *
+   * @param sres entries whose entities are EventInfo or EventFormatter
+   * @param formatter builds a formatter for an EventInfo entity
+   */
+  public void putEvents(final Collection<SearchResultEntry> sres,
+                        final Function<EventInfo, EventFormatter> formatter) {
+    final var jfr = new JfrEvents.PutEvents();
+    jfr.begin();
+
+    if ((dayExpander != null) &&
+            (maxViewEvents > 0) && (sres.size() > maxViewEvents)) {
+      /* Too many - just count them. No formatters are built or
+       * retained so the caller can drop the results. Without an
+       * expander the days could never be filled so hold them all.
+       */
+      events = new HashMap<>();
+      intervals = null;
+      summarise(sres);
+    } else {
+      events = new HashMap<>(sres.size());
+
+      if (recurrenceExpander != null) {
+        masters = new HashMap<>();
+        overrides = new HashMap<>();
+        viewInstances = null;
+        dayInstances = new HashMap<>();
+      }
+
+      for (final SearchResultEntry sre: sres) {
+        final EventFormatter ef = toFormatter(sre.getEntity(), formatter);
+
+        if (ef != null) {
+          final BwEvent ev = ef.getEvent();
+
+          if (recurrenceExpander != null) {
+            if (ev.getRecurrenceId() != null) {
+              overrides.computeIfAbsent(ev.getHref(),
+                                        k -> new HashSet<>())
+                       .add(ev.getRecurrenceId());
+            } else if (ev.getRecurring()) {
+              masters.put(ev.getHref(), ef);
+              continue;
+            }
+          }
+
+          events.put(makeKey(ev), ef);
+        }
+      }
+
+      intervals = new EventIntervals(events.values());
+    }
+
+    jfr.viewType = getViewType();
+    jfr.entries = sres.size();
+    jfr.events = events.size();
+    jfr.commit();
+  }
+
+  /* One pass over the results to build per-day counts. Each event
+   * is placed by binary search over the UTC day boundaries.
+   */
+  private void summarise(final Collection<SearchResultEntry> sres) {
+    final String[] bounds = getDayBoundaries();
+    final int numDays = dayDates.length;
+
+    summaryMode = true;
+    dayCounts = new int[numDays];
+    expandedDays = new HashMap<>();
+
+    final int todayIndex = dayIndex(icalDateFormat.fromDate());
 
     for (final SearchResultEntry sre: sres) {
-      if (sre.getEntity() instanceof final EventFormatter ef) {
-        events.put(makeKey(ef.getEvent()), ef);
+      final BwEvent ev = entityEvent(sre.getEntity());
+      if (ev == null) {
+        continue;
+      }
+
+      if ((ev.getEntityType() == IcalDefs.entityTypeTodo) &&
+              ev.getNoStart()) {
+        if (todayIndex >= 0) {
+          dayCounts[todayIndex]++;
+        }
+        continue;
+      }
+
+      final String evStart = ev.getDtstart().getDate();
+      final String evEnd = ev.getDtend().getDate();
+
+      final int first = Math.max(0, lastAtOrBefore(bounds, evStart));
+      final int last;
+
+      if (evStart.equals(evEnd)) {
+        last = lastAtOrBefore(bounds, evStart);
+      } else {
+        last = lastBefore(bounds, evEnd);
+      }
+
+      for (int i = first; i <= Math.min(last, numDays - 1); i++) {
+        dayCounts[i]++;
+      }
+    }
+  }
+
+  private static BwEvent entityEvent(final Object entity) {
+    if (entity instanceof final EventFormatter ef) {
+      return ef.getEvent();
+    }
+
+    if (entity instanceof final EventInfo ei) {
+      return ei.getEvent();
+    }
+
+    return null;
+  }
+
+  private static EventFormatter toFormatter(
+          final Object entity,
+          final Function<EventInfo, EventFormatter> formatter) {
+    if (entity instanceof final EventFormatter ef) {
+      return ef;
+    }
+
+    if ((formatter != null) && (entity instanceof final EventInfo ei)) {
+      return formatter.apply(ei);
+    }
+
+    return null;
+  }
+
+  /* Instances of the held masters for one day. The instances for
+   * the whole view are fetched on the first request for any day.
+   */
+  private List<EventFormatter> getDayInstances(final String dtAsString,
+                                               final String startUtc,
+                                               final String endUtc) {
+    var res = dayInstances.get(dtAsString);
+    if (res != null) {
+      return res;
+    }
+
+    res = new ArrayList<>();
+
+    if (viewInstances == null) {
+      if (recurrenceExpander == null) {
+        // Restored from the session - cannot expand
+        return res;
+      }
+
+      viewInstances = expandMasters();
+    }
+
+    for (final EventFormatter ef: viewInstances) {
+      if (ef.getEvent().inDateTimeRange(startUtc, endUtc)) {
+        res.add(ef);
+      }
+    }
+
+    dayInstances.put(dtAsString, res);
+
+    return res;
+  }
+
+  /* One call to the expander for the masters which may have
+   * instances in the view.
+   */
+  private List<EventFormatter> expandMasters() {
+    final String lastDate = icalDateFormat.fromDate(
+            getLastDay().getTime());
+    final DayBoundaries db = getDayBoundaries(lastDate);
+    final String viewEndUtc = db.getEndUtc(dayOfYearIndex(db, lastDate));
+
+    final List<EventFormatter> selected = new ArrayList<>();
+
+    for (final EventFormatter master: masters.values()) {
+      /* No instance can start after the view if the master does.
+       * Without a UTC start leave it to the expander.
+       */
+      final String mstart = master.getEvent().getDtstart().getDate();
+      if ((mstart != null) && (mstart.length() > 8) &&
+              (mstart.compareTo(viewEndUtc) >= 0)) {
+        continue;
       }
+
+      selected.add(master);
+    }
+
+    if (selected.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    return new ArrayList<>(
+            recurrenceExpander.getInstances(selected, viewStart, viewEnd,
+                                            overrides));
+  }
+
+  private Collection<EventFormatter> getExpandedDay(final Calendar date) {
+    final var dtAsString = icalDateFormat.fromDate(date.getTime());
+
+    var res = expandedDays.get(dtAsString);
+    if (res != null) {
+      return res;
+    }
+
+    if ((dayExpander == null) || (getDayEventCount(date) == 0)) {
+      return new ArrayList<>();
+    }
+
+    final BwDateTime startDt = getDayStart(dtAsString);
+    res = dayExpander.getEvents(startDt, startDt.addDur("P1D"));
+    expandedDays.put(dtAsString, res);
+
+    return res;
+  }
+
+  /* Returns the UTC start of each day in the view plus the end of the
+   * last day. Also sets dayDates.
+   */
+  private String[] getDayBoundaries() {
+    final Calendar c = (Calendar)getFirstDay().clone();
+    final ArrayList<String> dates = new ArrayList<>();
+
+    while (!c.after(getLastDay())) {
+      dates.add(icalDateFormat.fromDate(c.getTime()));
+      c.add(Calendar.DATE, 1);
+    }
+
+    dayDates = dates.toArray(new String[0]);
+
+    final String[] bounds = new String[dayDates.length + 1];
+
+    for (int i = 0; i < dayDates.length; i++) {
+      final DayBoundaries db = getDayBoundaries(dayDates[i]);
+      final int dayIndex = dayOfYearIndex(db, dayDates[i]);
+
+      bounds[i] = db.getStartUtc(dayIndex);
+      bounds[i + 1] = db.getEndUtc(dayIndex);
+    }
+
+    return bounds;
+  }
+
+  /* Boundaries for the year of dtAsString in the default timezone */
+  private static DayBoundaries getDayBoundaries(final String dtAsString) {
+    final String tzid;
+    try {
+      tzid = Timezones.getDefaultTz().getID();
+    } catch (final TimezonesException tze) {
+      throw new RuntimeException(tze);
+    }
+
+    return DayBoundaries.getInstance(
+            tzid, Integer.parseInt(dtAsString.substring(0, 4)));
+  }
+
+  private static int dayOfYearIndex(final DayBoundaries db,
+                                    final String dtAsString) {
+    return db.dayIndex(Integer.parseInt(dtAsString.substring(4, 6)),
+                       Integer.parseInt(dtAsString.substring(6, 8)));
+  }
+
+  private BwDateTime getDayStart(final String dtAsString) {
+    final String tzid;
+    try {
+      tzid = Timezones.getDefaultTz().getID();
+    } catch (final TimezonesException tze) {
+      throw new RuntimeException(tze);
     }
+
+    return BwDateTimeUtil.getDateTime(dtAsString + "T000000",
+                                      false,
+                                      false,
+                                      tzid);
+  }
+
+  /* Index into dayDates or -1 */
+  private int dayIndex(final String dtAsString) {
+    if (dayDates == null) {
+      return -1;
+    }
+
+    final int i = Arrays.binarySearch(dayDates, dtAsString);
+    if (i < 0) {
+      return -1;
+    }
+
+    return i;
+  }
+
+  /* Index of the last boundary <= val, -1 if none */
+  private static int lastAtOrBefore(final String[] bounds,
+                                    final String val) {
+    int lo = 0;
+    int hi = bounds.length - 1;
+    int res = -1;
+
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (bounds[mid].compareTo(val) <= 0) {
+        res = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    return res;
+  }
+
+  /* Index of the last boundary < val, -1 if none */
+  private static int lastBefore(final String[] bounds,
+                                final String val) {
+    int lo = 0;
+    int hi = bounds.length - 1;
+    int res = -1;
+
+    while (lo <= hi) {
+      final int mid = (lo + hi) >>> 1;
+      if (bounds[mid].compareTo(val) < 0) {
+        res = mid;
+        lo = mid + 1;
+      } else {
+        hi = mid - 1;
+      }
+    }
+
+    return res;
   }
 
   private String makeKey(final BwEvent ev) {
@@ -786,6 +1455,7 @@ public class TimeView implements Logged, Serializable {
       tvdi.setLastDayOfWeek(getCalInfo().getLastDayOfWeek() == dayOfWeek);
 
       days.add(tvdi);
+      gtpi.days++;
       gtpi.isFirst = false;
 
       gtpi.prevTvdi = tvdi;
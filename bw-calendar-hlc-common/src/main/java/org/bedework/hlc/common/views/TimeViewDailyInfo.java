@@ -138,6 +138,14 @@ public class TimeViewDailyInfo implements Logged, Serializable {
    */
   private Collection<EventFormatter> events;
 
+  /** Number of events for the day - -1 for not yet set
+   */
+  private int eventCount = -1;
+
+  /** Column layout of the timed events - for grid views
+   */
+  private Collection<EventLayout> layouts;
+
   /** Constructor:
    *
    */
@@ -492,6 +500,55 @@ public class TimeViewDailyInfo implements Logged, Serializable {
             .setEntities(events);
   }
 
+  /** For day and week views the position of each timed event in the
+   * day grid. Empty for other views.
+   *
+   * @return Collection of layouts in start order
+   */
+  public GetEntitiesResponse<EventLayout> getLayouts() {
+    if (layouts == null) {
+      if (!getDayEntry()) {
+        error("*******Not a day entry*****");
+        throw new IllegalStateException("Not a day entry");
+      }
+
+      try {
+        layouts = view.getDaysLayout(cal);
+      } catch (final Throwable t) {
+        return new GetEntitiesResponse<EventLayout>().error(t);
+      }
+    }
+
+    return new GetEntitiesResponse<EventLayout>()
+            .setEntities(layouts);
+  }
+
+  /** The number of events for this day. This may be greater than the
+   * number returned by getEvents if the view limits events per day or
+   * holds only counts.
+   *
+   * @return int
+   */
+  public int getEventCount() {
+    if (eventCount < 0) {
+      if (!getDayEntry()) {
+        return 0;
+      }
+
+      eventCount = view.getDayEventCount(cal);
+    }
+
+    return eventCount;
+  }
+
+  /**
+   * @return true if the view holds only counts for each day. Events
+   *         for the day are fetched when getEvents is called.
+   */
+  public boolean isSummary() {
+    return (view != null) && view.isSummaryMode();
+  }
+
   /** Return the events for the day as an array of value objects
    *
    * @param   date    Calendar object defining day
@@ -49,5 +49,13 @@ public class WeekView extends TimeView {
 
     viewPeriod = BedeworkDefs.weekView;
   }
-}
 
+  /** Events are displayed in a grid of times
+   *
+   * @return boolean
+   */
+  @Override
+  public boolean supportsLayout() {
+    return true;
+  }
+}
@@ -0,0 +1,92 @@
+package org.bedework.hlc.common;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BwModuleStateTest {
+  private static BwModuleState roundTrip(final BwModuleState val)
+          throws Exception {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (final ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+      oos.writeObject(val);
+    }
+
+    try (final ObjectInputStream ois = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+      return (BwModuleState)ois.readObject();
+    }
+  }
+
+  @Test
+  public void keysSurviveRestore() throws Exception {
+    final BwModuleState st = new BwModuleState("main");
+    st.setQuery("concert");
+    st.setSearchLimits("all");
+    st.setDate("20260315");
+    st.setCurViewPeriod(2);
+    assertTrue(st.setVar("skin", "dark"));
+
+    final BwModuleState res = roundTrip(st);
+
+    assertEquals("main", res.getModuleName());
+    assertEquals("concert", res.getQuery());
+    assertEquals("all", res.getSearchLimits());
+    assertEquals("20260315", res.getDate());
+    assertEquals(2, res.getCurViewPeriod());
+    assertEquals("dark", res.getVar("skin"));
+    assertTrue(res.getRefresh());
+    assertFalse(st.getRefresh());
+  }
+
+  @Test
+  public void viewStartDateKeepsTimeAndZone() throws Exception {
+    final BwModuleState st = new BwModuleState("main");
+    final TimeDateComponents tdc = st.getViewStartDate();
+    tdc.setDateTime("20260315T143000");
+    tdc.setTzid("Europe/London");
+
+    /* No assignEventDates after the restore */
+    final TimeDateComponents res = roundTrip(st).getViewStartDate();
+
+    assertNotNull(res);
+    assertEquals(2026, res.getYear());
+    assertEquals(3, res.getMonth());
+    assertEquals(15, res.getDay());
+    assertFalse(res.getDateOnly());
+    assertEquals(14, res.get24Hourval());
+    assertEquals(30, res.getMinute());
+    assertEquals("Europe/London", res.getTzid());
+  }
+
+  @Test
+  public void dateOnlyViewStartDate() throws Exception {
+    final BwModuleState st = new BwModuleState("main");
+    st.getViewStartDate().setDateTime("20261231");
+    st.getViewStartDate().setTzid("America/New_York");
+
+    final TimeDateComponents res = roundTrip(st).getViewStartDate();
+
+    assertTrue(res.getDateOnly());
+    assertEquals(31, res.getDay());
+  }
+
+  @Test
+  public void sizeRecordedOnWrite() throws Exception {
+    final long before = BwModuleState.getSerializedSizeSamples();
+
+    roundTrip(new BwModuleState("main"));
+
+    assertEquals(before + 1, BwModuleState.getSerializedSizeSamples());
+    assertTrue(BwModuleState.getSerializedSizeMax() > 0);
+    assertTrue(BwModuleState.getSerializedSizeAverage() > 0);
+  }
+}
@@ -0,0 +1,103 @@
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.BwDuration;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class DurationBeanTest {
+  private static BwDuration parsed(final String val) {
+    final BwDuration db = new BwDuration();
+    assertTrue(val, DurationBean.parse(val, db));
+
+    return db;
+  }
+
+  private static void assertDuration(final BwDuration db,
+                                     final int weeks, final int days,
+                                     final int hours, final int minutes,
+                                     final int seconds,
+                                     final boolean negative) {
+    assertEquals("weeks", weeks, db.getWeeks());
+    assertEquals("days", days, db.getDays());
+    assertEquals("hours", hours, db.getHours());
+    assertEquals("minutes", minutes, db.getMinutes());
+    assertEquals("seconds", seconds, db.getSeconds());
+    assertEquals("negative", negative, db.getNegative());
+  }
+
+  @Test
+  public void parseDayTime() {
+    assertDuration(parsed("P1DT2H3M4S"), 0, 1, 2, 3, 4, false);
+    assertDuration(parsed("PT15M"), 0, 0, 0, 15, 0, false);
+    assertDuration(parsed("P10D"), 0, 10, 0, 0, 0, false);
+    assertDuration(parsed("PT0S"), 0, 0, 0, 0, 0, false);
+  }
+
+  @Test
+  public void parseWeeksAndSign() {
+    assertDuration(parsed("P2W"), 2, 0, 0, 0, 0, false);
+    assertDuration(parsed("-P1W"), 1, 0, 0, 0, 0, true);
+    assertDuration(parsed("+PT1H"), 0, 0, 1, 0, 0, false);
+  }
+
+  @Test
+  public void parseBadDurations() {
+    final String[] bad = {
+            null, "", "P", "PT", "-", "-P", "P1DT", "1D", "D", "P1",
+            "PT1D", "P1H", "P1W2D", "P1WT1H", "P1DTT1H", "P-1D",
+            "P1.5D", "PT1H ", " PT1H", "p1d", "P1234567890D"
+    };
+
+    for (final String val: bad) {
+      assertFalse(String.valueOf(val),
+                  DurationBean.parse(val, new BwDuration()));
+    }
+  }
+
+  @Test
+  public void failedParseLeavesTargetUnchanged() {
+    final BwDuration db = parsed("PT30M");
+
+    assertFalse(DurationBean.parse("P1WT1H", db));
+    assertDuration(db, 0, 0, 0, 30, 0, false);
+  }
+
+  @Test
+  public void sharedValuesAreReadOnly() {
+    assertThrows(UnsupportedOperationException.class,
+                 () -> DurationBean.oneHour.setHours(2));
+    assertThrows(UnsupportedOperationException.class,
+                 () -> DurationBean.oneWeek.setNegative(true));
+    assertDuration(DurationBean.oneHour, 0, 0, 1, 0, 0, false);
+  }
+
+  @Test
+  public void madeBeansAreCopies() {
+    final DurationBean db = DurationBean.makeDurationBean("PT1H");
+
+    assertNotSame(DurationBean.oneHour, db);
+    db.setHours(3);
+    assertEquals(1, DurationBean.oneHour.getHours());
+
+    final DurationBean w = DurationBean.makeDurationBean("P1W");
+    assertEquals(DurationBean.weekDuration, w.getType());
+    assertEquals(DurationBean.dayTimeDuration,
+                 DurationBean.makeOneDay().getType());
+  }
+
+  @Test
+  public void sameAs() {
+    assertTrue(DurationBean.oneWeek.sameAs("P7D"));
+    assertTrue(DurationBean.oneHour.sameAs("PT60M"));
+    assertFalse(DurationBean.oneDay.sameAs("PT24H"));
+    assertFalse(DurationBean.oneDay.sameAs("-P1D"));
+    assertFalse(DurationBean.oneDay.sameAs((String)null));
+    assertFalse(DurationBean.oneDay.sameAs((BwDuration)null));
+  }
+}
@@ -0,0 +1,262 @@
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.BwUser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupMembershipIndexTest {
+  private static BwGroup<?> group(final String name,
+                                  final BwPrincipal<?>... members) {
+    final BwGroup<?> g = new BwGroup<>();
+    g.setPrincipalRef("/principals/groups/" + name);
+
+    for (final var mbr: members) {
+      g.addGroupMember(mbr);
+    }
+
+    return g;
+  }
+
+  private static BwUser user(final String name) {
+    final BwUser u = new BwUser();
+    u.setPrincipalRef("/principals/users/" + name);
+
+    return u;
+  }
+
+  private static String g(final String name) {
+    return "/principals/groups/" + name;
+  }
+
+  private static String u(final String name) {
+    return "/principals/users/" + name;
+  }
+
+  private static void assertHrefs(final List<String> hrefs,
+                                  final String... expected) {
+    assertEquals(new TreeSet<>(Arrays.asList(expected)),
+                 new TreeSet<>(hrefs));
+    assertEquals("duplicates", expected.length, hrefs.size());
+  }
+
+  @Test
+  public void emptyInput() {
+    final var idx = GroupMembershipIndex.build(Collections.emptyList());
+
+    assertEquals(0, idx.getNumPrincipals());
+    assertEquals(0, idx.getNumGroups());
+    assertFalse(idx.contains(u("a")));
+    assertFalse(idx.isMember(u("a"), g("x")));
+    assertTrue(idx.getGroups(u("a")).isEmpty());
+    assertTrue(idx.getMembers(g("x")).isEmpty());
+  }
+
+  @Test
+  public void groupWithNoMembers() {
+    final var idx = GroupMembershipIndex.build(List.of(group("x")));
+
+    assertEquals(1, idx.getNumPrincipals());
+    assertEquals(1, idx.getNumGroups());
+    assertTrue(idx.contains(g("x")));
+    assertTrue(idx.getMembers(g("x")).isEmpty());
+    assertTrue(idx.getGroups(g("x")).isEmpty());
+  }
+
+  @Test
+  public void builtFrom() {
+    final List<BwGroup<?>> groups = List.of(group("x", user("a")));
+    final var idx = GroupMembershipIndex.build(groups);
+
+    assertTrue(idx.isBuiltFrom(groups));
+    assertFalse(idx.isBuiltFrom(new ArrayList<>(groups)));
+  }
+
+  @Test
+  public void transitiveMembership() {
+    final var a = user("a");
+    final var b = user("b");
+    final var inner = group("inner", a);
+    final var middle = group("middle", inner, b);
+    final var outer = group("outer", middle);
+
+    final var idx = GroupMembershipIndex.build(List.of(outer));
+
+    assertEquals(5, idx.getNumPrincipals());
+    assertEquals(3, idx.getNumGroups());
+
+    assertTrue(idx.isMember(u("a"), g("inner")));
+    assertTrue(idx.isMember(u("a"), g("outer")));
+    assertTrue(idx.isMember(u("b"), g("middle")));
+    assertFalse(idx.isMember(u("b"), g("inner")));
+    assertFalse(idx.isMember(g("outer"), g("inner")));
+
+    assertHrefs(idx.getGroups(u("a")),
+                g("inner"), g("middle"), g("outer"));
+    assertHrefs(idx.getMembers(g("outer")),
+                g("middle"), g("inner"), u("a"), u("b"));
+  }
+
+  @Test
+  public void sharedMemberCountedOnce() {
+    final var a = user("a");
+    final var x = group("x", a);
+    final var y = group("y", a, x);
+
+    final var idx = GroupMembershipIndex.build(List.of(x, y, x));
+
+    assertEquals(2, idx.getNumGroups());
+    assertHrefs(idx.getGroups(u("a")), g("x"), g("y"));
+    assertHrefs(idx.getMembers(g("y")), u("a"), g("x"));
+  }
+
+  @Test
+  public void cycle() {
+    final var a = user("a");
+    final var x = group("x", a);
+    final var y = group("y", x);
+    x.addGroupMember(y);
+
+    final var idx = GroupMembershipIndex.build(List.of(x));
+
+    assertEquals(2, idx.getNumGroups());
+    assertTrue(idx.isMember(u("a"), g("y")));
+
+    /* Each group is in the other so is in itself */
+    assertTrue(idx.isMember(g("x"), g("x")));
+    assertHrefs(idx.getGroups(g("x")), g("x"), g("y"));
+    assertHrefs(idx.getMembers(g("x")), u("a"), g("x"), g("y"));
+  }
+
+  @Test
+  public void selfMembership() {
+    final var x = group("x");
+    x.addGroupMember(x);
+
+    final var idx = GroupMembershipIndex.build(List.of(x));
+
+    assertTrue(idx.isMember(g("x"), g("x")));
+    assertHrefs(idx.getMembers(g("x")), g("x"));
+  }
+
+  @Test
+  public void userIsNotAGroup() {
+    final var idx = GroupMembershipIndex.build(
+            List.of(group("x", user("a"))));
+
+    assertFalse(idx.isMember(u("a"), u("a")));
+    assertTrue(idx.getMembers(u("a")).isEmpty());
+  }
+
+  @Test
+  public void manyGroups() {
+    /* A chain longer than one bitset word */
+    final int num = 130;
+    BwGroup<?> prev = group("g0", user("a"));
+
+    for (int i = 1; i < num; i++) {
+      prev = group("g" + i, prev);
+    }
+
+    final var idx = GroupMembershipIndex.build(List.of(prev));
+
+    assertEquals(num, idx.getNumGroups());
+    assertEquals(num, idx.getGroups(u("a")).size());
+    assertTrue(idx.isMember(u("a"), g("g" + (num - 1))));
+    assertTrue(idx.isMember(g("g64"), g("g65")));
+    assertFalse(idx.isMember(g("g65"), g("g64")));
+    assertEquals(num, idx.getMembers(g("g" + (num - 1))).size());
+  }
+
+  @Test
+  public void nestingDepth() {
+    assertEquals(0, GroupMembershipIndex.build(Collections.emptyList())
+                                        .getNestingDepth());
+    assertEquals(1, GroupMembershipIndex.build(
+            List.of(group("x", user("a")))).getNestingDepth());
+
+    /* outer -> middle -> inner plus a shortcut outer -> inner */
+    final var inner = group("inner", user("a"));
+    final var middle = group("middle", inner);
+    final var outer = group("outer", middle, inner);
+
+    /* Built from the shallow root first - depth is still the longest */
+    assertEquals(3, GroupMembershipIndex.build(List.of(inner, outer))
+                                        .getNestingDepth());
+  }
+
+  @Test
+  public void nestingDepthCycles() {
+    /* top -> x <-> y -> bottom */
+    final var bottom = group("bottom");
+    final var x = group("x");
+    final var y = group("y", x, bottom);
+    x.addGroupMember(y);
+    final var top = group("top", x);
+
+    assertEquals(3, GroupMembershipIndex.build(List.of(top))
+                                        .getNestingDepth());
+
+    /* A group in a cycle of its own holding another */
+    final var self = group("self", group("in"));
+    self.addGroupMember(self);
+
+    assertEquals(2, GroupMembershipIndex.build(List.of(self))
+                                        .getNestingDepth());
+  }
+
+  @Test
+  public void nestingDepthRandom() {
+    final var rand = new Random(17);
+
+    for (int run = 0; run < 200; run++) {
+      final int num = 1 + rand.nextInt(20);
+      final List<BwGroup<?>> gs = new ArrayList<>();
+      final boolean[][] edges = new boolean[num][num];
+
+      for (int i = 0; i < num; i++) {
+        gs.add(group("r" + i));
+      }
+
+      /* Only lower to higher so there are no cycles */
+      for (int i = 0; i < num; i++) {
+        for (int j = i + 1; j < num; j++) {
+          if (rand.nextInt(4) == 0) {
+            gs.get(i).addGroupMember(gs.get(j));
+            edges[i][j] = true;
+          }
+        }
+      }
+
+      final int[] longest = new int[num];
+      int expected = 0;
+      for (int j = num - 1; j >= 0; j--) {
+        longest[j] = 1;
+        for (int k = j + 1; k < num; k++) {
+          if (edges[j][k]) {
+            longest[j] = Math.max(longest[j], longest[k] + 1);
+          }
+        }
+        expected = Math.max(expected, longest[j]);
+      }
+
+      final var roots = new ArrayList<>(gs);
+      Collections.shuffle(roots, rand);
+
+      assertEquals("run " + run, expected,
+                   GroupMembershipIndex.build(roots).getNestingDepth());
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package org.bedework.hlc.common;
+
+import org.bedework.calfacade.indexing.SearchResult;
+import org.bedework.calfacade.indexing.SearchResultEntry;
+
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchResultWindowTest {
+  /* Records the calls and returns found entries at most */
+  private static class TestFetcher implements SearchResultWindow.Fetcher {
+    final long found;
+    final List<int[]> calls = new ArrayList<>();
+
+    TestFetcher(final long found) {
+      this.found = found;
+    }
+
+    @Override
+    public List<SearchResultEntry> fetch(final int start, final int num) {
+      calls.add(new int[]{start, num});
+      final int n = (int)Math.max(0, Math.min(num, found - start));
+      return new ArrayList<>(Collections.nCopies(n, null));
+    }
+  }
+
+  private static SearchResult result(final long found) {
+    return (SearchResult)Proxy.newProxyInstance(
+            SearchResult.class.getClassLoader(),
+            new Class<?>[]{SearchResult.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("getFound")) {
+                return found;
+              }
+
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  @Test
+  public void emptyResult() {
+    final TestFetcher f = new TestFetcher(0);
+    final SearchResultWindow w =
+            new SearchResultWindow(result(0), f, 10);
+
+    assertEquals(0, w.getNumPages());
+    assertTrue(w.getCurrent().isEmpty());
+    assertFalse(w.hasNext());
+    assertFalse(w.hasPrev());
+    assertTrue(f.calls.isEmpty());
+  }
+
+  @Test
+  public void readAheadAvoidsFetch() {
+    final TestFetcher f = new TestFetcher(45);
+    final SearchResultWindow w =
+            new SearchResultWindow(result(45), f, 10, 1);
+
+    assertEquals(5, w.getNumPages());
+    assertEquals(10, w.getCurrent().size());
+    assertEquals(1, f.calls.size());
+    assertEquals(0, f.calls.get(0)[0]);
+    assertEquals(20, f.calls.get(0)[1]);
+
+    assertEquals(10, w.next().size());
+    assertEquals(1, f.calls.size());
+
+    assertEquals(10, w.next().size());
+    assertEquals(2, f.calls.size());
+    assertEquals(20, f.calls.get(1)[0]);
+
+    assertEquals(20, w.getRetained());
+  }
+
+  @Test
+  public void lastPageIsShort() {
+    final TestFetcher f = new TestFetcher(45);
+    final SearchResultWindow w =
+            new SearchResultWindow(result(45), f, 10, 0);
+
+    assertEquals(5, w.getPage(4).size());
+    assertFalse(w.hasNext());
+    assertTrue(w.next().isEmpty());
+    assertTrue(w.getPage(5).isEmpty());
+    assertTrue(w.getPage(-1).isEmpty());
+    assertEquals(4, w.getCurPage());
+  }
+
+  @Test
+  public void retainedNeverFetches() {
+    final TestFetcher f = new TestFetcher(45);
+    final SearchResultWindow w =
+            new SearchResultWindow(result(45), f, 10, 0);
+
+    assertTrue(w.getCurrentRetained().isEmpty());
+    assertTrue(f.calls.isEmpty());
+
+    w.getPage(2);
+    assertEquals(10, w.getCurrentRetained().size());
+
+    w.clear();
+    assertTrue(w.getCurrentRetained().isEmpty());
+    assertEquals(1, f.calls.size());
+  }
+
+  @Test
+  public void retainedIsCapped() {
+    final TestFetcher f = new TestFetcher(100000);
+    final SearchResultWindow w =
+            new SearchResultWindow(result(100000), f, 10000, 5);
+
+    assertEquals(SearchResultWindow.maxRetained, w.getPageSize());
+    w.getCurrent();
+    assertTrue(w.getRetained() <= SearchResultWindow.maxRetained);
+  }
+
+  @Test
+  public void nullFetchIsEmpty() {
+    final SearchResultWindow w =
+            new SearchResultWindow(result(30), (start, num) -> null, 10);
+
+    assertTrue(w.getCurrent().isEmpty());
+  }
+}
@@ -0,0 +1,54 @@
+package org.bedework.hlc.common.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ModuleMetricsTest {
+  @Test
+  public void inFlightIsPerAction() {
+    final ModuleMetrics mm = ModuleMetrics.getInstance();
+
+    mm.requestIn("inflight", 1);
+    mm.requestIn("inflight", 1);
+    mm.requestIn("inflight", 2);
+
+    assertEquals(2, mm.getInFlight("inflight", 1));
+    assertEquals(1, mm.getInFlight("inflight", 2));
+    assertEquals(0, mm.getInFlight("other", 1));
+
+    mm.requestOut("inflight", 1, 5);
+
+    assertEquals(1, mm.getInFlight("inflight", 1));
+    assertEquals(1, mm.getLatencies("inflight", 1).getCount());
+    assertNull(mm.getLatencies("inflight", 3));
+
+    mm.requestOut("inflight", 1, 5);
+    mm.requestOut("inflight", 2, 5);
+
+    assertEquals(0, mm.getInFlight("inflight", 1));
+    assertEquals(0, mm.getInFlight("inflight", 2));
+  }
+
+  @Test
+  public void histogramPercentiles() {
+    final LatencyHistogram h = new LatencyHistogram();
+
+    assertEquals(0, h.getPercentile(50));
+    assertEquals(0, h.getMean());
+
+    for (int i = 1; i <= 100; i++) {
+      h.record(i);
+    }
+    h.record(-5); // Treated as 0
+
+    assertEquals(101, h.getCount());
+    assertEquals(100, h.getMax());
+    assertEquals(50, h.getPercentile(50));
+    assertEquals(100, h.getPercentile(99));
+
+    h.reset();
+    assertEquals(0, h.getCount());
+  }
+}
@@ -0,0 +1,91 @@
+package org.bedework.hlc.common.views;
+
+import org.junit.Test;
+
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DayBoundariesTest {
+  private static final long hour = 3600000L;
+
+  private static DayBoundaries make(final String tzid, final int year) {
+    return new DayBoundaries(TimeZone.getTimeZone(tzid), year);
+  }
+
+  private static long length(final DayBoundaries db,
+                             final int month, final int day) {
+    final int i = db.dayIndex(month, day);
+
+    return db.getEnd(i) - db.getStart(i);
+  }
+
+  @Test
+  public void yearLength() {
+    assertEquals(366, make("UTC", 2024).getNumDays());
+    assertEquals(365, make("UTC", 2023).getNumDays());
+    assertEquals(365, make("UTC", 2100).getNumDays());
+    assertEquals(365, make("UTC", 2024).dayIndex(12, 31));
+  }
+
+  @Test
+  public void yearEdges() {
+    final DayBoundaries db = make("America/New_York", 2024);
+
+    assertEquals("20240101T050000Z", db.getStartUtc(0));
+    assertEquals("20241231T050000Z", db.getStartUtc(365));
+    assertEquals("20250101T050000Z", db.getEndUtc(365));
+
+    /* East of UTC the year starts on the previous UTC day */
+    assertEquals("20231231T150000Z",
+                 make("Asia/Tokyo", 2024).getStartUtc(0));
+  }
+
+  @Test
+  public void daylightSavingDays() {
+    final DayBoundaries db = make("America/New_York", 2024);
+
+    assertEquals(23 * hour, length(db, 3, 10));
+    assertEquals(25 * hour, length(db, 11, 3));
+    assertEquals(24 * hour, length(db, 3, 11));
+    assertEquals("20240311T040000Z",
+                 db.getStartUtc(db.dayIndex(3, 11)));
+
+    /* Half hour shift */
+    final DayBoundaries lh = make("Australia/Lord_Howe", 2024);
+    assertEquals(24 * hour + hour / 2, length(lh, 4, 7));
+    assertEquals(24 * hour - hour / 2, length(lh, 10, 6));
+  }
+
+  @Test
+  public void changeAtMidnight() {
+    /* 2018-11-04 began at 01:00 in Sao Paulo - midnight did not exist */
+    final DayBoundaries db = make("America/Sao_Paulo", 2018);
+
+    assertEquals("20181104T030000Z",
+                 db.getStartUtc(db.dayIndex(11, 4)));
+    assertEquals(23 * hour, length(db, 11, 4));
+  }
+
+  @Test
+  public void daysAreContiguous() {
+    for (final String tzid: new String[]{"UTC", "Europe/London",
+                                         "Australia/Sydney",
+                                         "Pacific/Kiritimati"}) {
+      final DayBoundaries db = make(tzid, 2024);
+      long total = 0;
+
+      for (int i = 0; i < db.getNumDays(); i++) {
+        final long len = db.getEnd(i) - db.getStart(i);
+
+        assertTrue(tzid + " day " + i,
+                   (len >= 23 * hour) && (len <= 25 * hour));
+        total += len;
+      }
+
+      assertEquals(tzid, db.getEnd(db.getNumDays() - 1) - db.getStart(0),
+                   total);
+    }
+  }
+}
@@ -0,0 +1,175 @@
+package org.bedework.hlc.common.views;
+
+import org.bedework.calfacade.BwDateTime;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.calfacade.BwEventObj;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.hlc.common.EventFormatter;
+import org.bedework.util.calendar.IcalDefs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventIntervalsTest {
+  private static BwDateTime dt(final String val) {
+    final BwDateTime dt = new BwDateTime();
+    dt.setDateType(val.length() == 8);
+    dt.setDtval(val);
+    dt.setDate(val);
+
+    return dt;
+  }
+
+  private static EventFormatter event(final String uid,
+                                      final String start,
+                                      final String end) {
+    final BwEvent ev = new BwEventObj();
+    ev.setEntityType(IcalDefs.entityTypeEvent);
+    ev.setUid(uid);
+    ev.setDtstart(dt(start));
+    ev.setDtend(dt(end));
+
+    return new EventFormatter(null, null, new EventInfo(ev));
+  }
+
+  private static EventFormatter noStartTodo(final String uid) {
+    final BwEvent ev = new BwEventObj();
+    ev.setEntityType(IcalDefs.entityTypeTodo);
+    ev.setUid(uid);
+    ev.setNoStart(true);
+
+    return new EventFormatter(null, null, new EventInfo(ev));
+  }
+
+  private static List<String> select(final EventIntervals ei,
+                                     final String start,
+                                     final String end,
+                                     final boolean today) {
+    final List<String> res = new ArrayList<>();
+
+    for (final EventFormatter ef:
+            ei.select(EventIntervals.encode(start),
+                      EventIntervals.encode(end),
+                      start, end, today)) {
+      res.add(ef.getEvent().getUid());
+    }
+
+    return res;
+  }
+
+  @Test
+  public void emptyInput() {
+    final EventIntervals ei = new EventIntervals(List.of());
+
+    assertEquals(0, ei.size());
+    assertTrue(select(ei, "20240101T000000Z", "20240102T000000Z",
+                      true).isEmpty());
+  }
+
+  @Test
+  public void encodeOrdersDatesWithTimes() {
+    final long date = EventIntervals.encode("20240102");
+
+    assertTrue(date < EventIntervals.encode("20240102T000000Z"));
+    assertTrue(date > EventIntervals.encode("20240101T235959Z"));
+    assertEquals(EventIntervals.encodeMillis(1704067200000L),
+                 EventIntervals.encode("20240101T000000Z"));
+  }
+
+  @Test
+  public void encodeBadValues() {
+    final String[] bad = {
+            null, "", "2024", "20241301", "20240230", "2024010a",
+            "20240101X100000Z", "20240101T10", "20240101T1000aaZ"
+    };
+
+    for (final String val: bad) {
+      assertEquals(String.valueOf(val), EventIntervals.unparsed,
+                   EventIntervals.encode(val));
+    }
+  }
+
+  @Test
+  public void selectOverlapsInStartOrder() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            event("late", "20240101T150000Z", "20240101T160000Z"),
+            event("early", "20240101T100000Z", "20240101T110000Z"),
+            event("long", "20231231T100000Z", "20240103T110000Z"),
+            event("nextDay", "20240102T100000Z", "20240102T110000Z")));
+
+    assertEquals(4, ei.size());
+    assertEquals(List.of("long", "early", "late"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        false));
+  }
+
+  @Test
+  public void rangeEndIsExclusive() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            event("a", "20240101T100000Z", "20240101T110000Z")));
+
+    assertTrue(select(ei, "20240101T110000Z", "20240101T120000Z",
+                      false).isEmpty());
+    assertTrue(select(ei, "20240101T090000Z", "20240101T100000Z",
+                      false).isEmpty());
+    assertEquals(List.of("a"),
+                 select(ei, "20240101T103000Z", "20240101T104500Z",
+                        false));
+  }
+
+  @Test
+  public void zeroLengthEvents() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            event("atStart", "20240101T000000Z", "20240101T000000Z"),
+            event("atEnd", "20240102T000000Z", "20240102T000000Z")));
+
+    assertEquals(List.of("atStart"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        false));
+  }
+
+  @Test
+  public void allDayEvents() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            event("day", "20240101", "20240102")));
+
+    assertEquals(List.of("day"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        false));
+    assertTrue(select(ei, "20240102T000000Z", "20240103T000000Z",
+                      false).isEmpty());
+  }
+
+  @Test
+  public void todosWithNoStartOnlyToday() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            noStartTodo("todo"),
+            event("a", "20240101T100000Z", "20240101T110000Z")));
+
+    assertEquals(List.of("a"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        false));
+    assertEquals(List.of("a", "todo"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        true));
+  }
+
+  @Test
+  public void unparsedValuesFallBackToStrings() {
+    final EventIntervals ei = new EventIntervals(List.of(
+            event("odd", "20240101T10", "20240101T11"),
+            event("a", "20240101T120000Z", "20240101T130000Z")));
+
+    assertEquals(List.of("odd", "a"),
+                 select(ei, "20240101T000000Z", "20240102T000000Z",
+                        false));
+    assertEquals(List.of("odd"),
+                 select(ei, "20240101T000000Z", "20240101T120000Z",
+                        false));
+  }
+}
@@ -0,0 +1,221 @@
+package org.bedework.hlc.common.views;
+
+import org.bedework.calfacade.BwDateTime;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.calfacade.BwEventObj;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.hlc.common.EventFormatter;
+import org.bedework.hlc.common.UtcDates;
+import org.bedework.util.calendar.IcalDefs;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventLayoutTest {
+  /* 2024-01-01T00:00:00Z */
+  private static final long dayStart = 1704067200000L;
+  private static final long dayEnd = dayStart + UtcDates.millisPerDay;
+
+  private static BwDateTime dt(final String val) {
+    final BwDateTime dt = new BwDateTime();
+    dt.setDateType(val.length() == 8);
+    dt.setDtval(val);
+    dt.setDate(val);
+
+    return dt;
+  }
+
+  private static String utc(final int minutes) {
+    return UtcDates.formatUtc(dayStart + minutes * 60000L);
+  }
+
+  private static EventFormatter event(final String uid,
+                                      final String start,
+                                      final String end) {
+    final BwEvent ev = new BwEventObj();
+    ev.setEntityType(IcalDefs.entityTypeEvent);
+    ev.setUid(uid);
+    ev.setDtstart(dt(start));
+    ev.setDtend(dt(end));
+
+    return new EventFormatter(null, null, new EventInfo(ev));
+  }
+
+  /* Times are minutes into the day */
+  private static EventFormatter event(final String uid,
+                                      final int start,
+                                      final int end) {
+    return event(uid, utc(start), utc(end));
+  }
+
+  private static Map<String, EventLayout> layout(
+          final List<EventFormatter> efs) {
+    final Map<String, EventLayout> res = new HashMap<>();
+
+    for (final EventLayout el: EventLayout.layout(efs, dayStart,
+                                                  dayEnd)) {
+      res.put(el.getEvent().getEvent().getUid(), el);
+    }
+
+    return res;
+  }
+
+  private static void assertLayout(final EventLayout el,
+                                   final int column,
+                                   final int columns,
+                                   final int span) {
+    assertEquals("column", column, el.getColumn());
+    assertEquals("columns", columns, el.getColumns());
+    assertEquals("span", span, el.getSpan());
+  }
+
+  @Test
+  public void noEvents() {
+    assertTrue(EventLayout.layout(List.of(), dayStart, dayEnd)
+                          .isEmpty());
+  }
+
+  @Test
+  public void singleEvent() {
+    final var l = layout(List.of(event("a", 600, 660)));
+
+    assertLayout(l.get("a"), 0, 1, 1);
+  }
+
+  @Test
+  public void touchingEventsShareAColumn() {
+    final var l = layout(List.of(event("a", 540, 600),
+                                 event("b", 600, 660)));
+
+    assertLayout(l.get("a"), 0, 1, 1);
+    assertLayout(l.get("b"), 0, 1, 1);
+  }
+
+  @Test
+  public void overlapsAndSpans() {
+    final var l = layout(List.of(event("a", 540, 720),
+                                 event("b", 540, 600),
+                                 event("c", 540, 660),
+                                 event("d", 600, 660),
+                                 event("e", 660, 720),
+                                 event("f", 780, 840)));
+
+    assertLayout(l.get("a"), 0, 3, 1);
+    assertLayout(l.get("c"), 1, 3, 1);
+    assertLayout(l.get("b"), 2, 3, 1);
+    assertLayout(l.get("d"), 2, 3, 1);
+
+    /* Nothing in column 2 after 11:00 */
+    assertLayout(l.get("e"), 1, 3, 2);
+
+    /* New group */
+    assertLayout(l.get("f"), 0, 1, 1);
+  }
+
+  @Test
+  public void laterEventLimitsSpan() {
+    /* b could span column 2 until c starts there */
+    final var l = layout(List.of(event("a", 540, 720),
+                                 event("b", 540, 720),
+                                 event("x", 540, 600),
+                                 event("c", 660, 690)));
+
+    assertLayout(l.get("x"), 2, 3, 1);
+    assertLayout(l.get("c"), 2, 3, 1);
+    assertLayout(l.get("b"), 1, 3, 1);
+    assertLayout(l.get("a"), 0, 3, 1);
+  }
+
+  @Test
+  public void notLaidOut() {
+    final BwEvent todo = new BwEventObj();
+    todo.setEntityType(IcalDefs.entityTypeTodo);
+    todo.setUid("todo");
+    todo.setNoStart(true);
+
+    final var l = layout(List.of(
+            event("allDay", "20240101", "20240102"),
+            event("bad", "20240101T10", "20240101T11"),
+            new EventFormatter(null, null, new EventInfo(todo)),
+            event("a", 600, 660)));
+
+    assertEquals(1, l.size());
+    assertLayout(l.get("a"), 0, 1, 1);
+  }
+
+  @Test
+  public void clippedAndZeroLength() {
+    final var l = layout(List.of(
+            event("overnight", "20231231T220000Z", "20240101T010000Z"),
+            event("early", 30, 90),
+            event("instant", 60, 60),
+            event("late", 1380, 1500)));
+
+    /* Clipped to end at 01:00 so the instant reuses its column */
+    assertLayout(l.get("overnight"), 0, 2, 1);
+    assertLayout(l.get("early"), 1, 2, 1);
+    assertLayout(l.get("instant"), 0, 2, 1);
+    assertLayout(l.get("late"), 0, 1, 1);
+  }
+
+  @Test
+  public void spansMatchPairwiseCheck() {
+    final Random rnd = new Random(42);
+
+    for (int run = 0; run < 200; run++) {
+      final List<EventFormatter> efs = new ArrayList<>();
+      final int n = rnd.nextInt(40);
+
+      for (int i = 0; i < n; i++) {
+        final int st = rnd.nextInt(96) * 15;
+        final int len = (rnd.nextInt(8) + 1) * 15;
+        efs.add(event("e" + i, st, st + len));
+      }
+
+      final List<EventLayout> els =
+              EventLayout.layout(efs, dayStart, dayEnd);
+      assertEquals(n, els.size());
+
+      for (final EventLayout el: els) {
+        assertTrue(el.getColumn() + el.getSpan() <= el.getColumns());
+        assertEquals(el.toString(), expectedSpan(els, el),
+                     el.getSpan());
+      }
+    }
+  }
+
+  private static int expectedSpan(final List<EventLayout> els,
+                                  final EventLayout el) {
+    int c = el.getColumn() + 1;
+
+    while (c < el.getColumns()) {
+      for (final EventLayout other: els) {
+        if ((other.getColumn() == c) && overlap(el, other)) {
+          return c - el.getColumn();
+        }
+      }
+      c++;
+    }
+
+    return c - el.getColumn();
+  }
+
+  private static boolean overlap(final EventLayout a,
+                                 final EventLayout b) {
+    final BwEvent ea = a.getEvent().getEvent();
+    final BwEvent eb = b.getEvent().getEvent();
+
+    return (ea.getDtstart().getDate()
+              .compareTo(eb.getDtend().getDate()) < 0) &&
+            (eb.getDtstart().getDate()
+               .compareTo(ea.getDtend().getDate()) < 0);
+  }
+}
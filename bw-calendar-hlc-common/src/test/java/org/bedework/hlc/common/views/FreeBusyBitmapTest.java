@@ -0,0 +1,135 @@
+package org.bedework.hlc.common.views;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class FreeBusyBitmapTest {
+  private static FreeBusyBitmap make(final int minutesPerSlot) {
+    return new FreeBusyBitmap("20240101", 2, minutesPerSlot);
+  }
+
+  @Test
+  public void badSlotSize() {
+    assertThrows(IllegalArgumentException.class, () -> make(0));
+    assertThrows(IllegalArgumentException.class, () -> make(-15));
+  }
+
+  @Test
+  public void slotsPerDay() {
+    assertEquals(96, make(15).getSlotsPerDay());
+    assertEquals(1440, make(1).getSlotsPerDay());
+
+    /* Partial last slot */
+    assertEquals(206, make(7).getSlotsPerDay());
+  }
+
+  @Test
+  public void noDays() {
+    final FreeBusyBitmap fb = new FreeBusyBitmap("20240101", 0, 15);
+
+    assertEquals(0, fb.getNumDays());
+    assertEquals(0, fb.complement().getNumDays());
+  }
+
+  @Test
+  public void setBusyAcrossWords() {
+    final FreeBusyBitmap fb = make(15);
+
+    fb.setBusy(0, 60, 70);
+
+    assertEquals(10, fb.getBusyCount(0));
+    assertEquals(0, fb.getBusyCount(1));
+    assertFalse(fb.isBusy(0, 59));
+    assertTrue(fb.isBusy(0, 63));
+    assertTrue(fb.isBusy(0, 64));
+    assertFalse(fb.isBusy(0, 70));
+  }
+
+  @Test
+  public void setBusyIsClamped() {
+    final FreeBusyBitmap fb = make(15);
+
+    fb.setBusy(0, -5, 2);
+    fb.setBusy(0, 94, 200);
+    fb.setBusy(1, 10, 10);
+    fb.setBusy(1, 20, 10);
+    fb.setBusy(2, 0, 10);
+    fb.setBusy(-1, 0, 10);
+
+    assertEquals(4, fb.getBusyCount(0));
+    assertEquals(0, fb.getBusyCount(1));
+    assertFalse(fb.isBusy(0, 96));
+    assertFalse(fb.isBusy(0, -1));
+  }
+
+  @Test
+  public void busyPeriods() {
+    final FreeBusyBitmap fb = make(15);
+
+    fb.setBusy(0, 4, 8);
+    fb.setBusy(0, 8, 12);
+    fb.setBusy(0, 90, 96);
+
+    final List<int[]> periods = fb.getBusyPeriods(0);
+    assertEquals(2, periods.size());
+    assertArrayEquals(new int[]{4, 12}, periods.get(0));
+    assertArrayEquals(new int[]{90, 96}, periods.get(1));
+
+    assertEquals(4, fb.nextBusy(0, 0));
+    assertEquals(12, fb.nextFree(0, 4));
+    assertEquals(-1, fb.nextFree(0, 90));
+    assertEquals(-1, fb.nextBusy(0, 96));
+    assertTrue(fb.getBusyPeriods(1).isEmpty());
+  }
+
+  @Test
+  public void complementKeepsUnusedBitsClear() {
+    final FreeBusyBitmap fb = make(7);
+
+    fb.setBusy(1);
+
+    final FreeBusyBitmap free = fb.complement();
+    assertEquals(206, free.getBusyCount(0));
+    assertEquals(0, free.getBusyCount(1));
+    assertEquals(-1, free.nextBusy(1, 0));
+  }
+
+  @Test
+  public void combine() {
+    final FreeBusyBitmap a = make(30);
+    final FreeBusyBitmap b = make(30);
+
+    a.setBusy(0, 0, 10);
+    b.setBusy(0, 5, 15);
+
+    assertEquals(15, a.union(b).getBusyCount(0));
+    assertEquals(5, a.intersection(b).getBusyCount(0));
+    assertEquals(15, FreeBusyBitmap.unionOf(List.of(a, b))
+                                   .getBusyCount(0));
+    assertEquals(10, FreeBusyBitmap.intersectionOf(List.of(a))
+                                   .getBusyCount(0));
+
+    /* Inputs are unchanged */
+    assertEquals(10, a.getBusyCount(0));
+  }
+
+  @Test
+  public void incompatible() {
+    final FreeBusyBitmap a = make(30);
+
+    assertThrows(IllegalArgumentException.class,
+                 () -> a.union(make(15)));
+    assertThrows(IllegalArgumentException.class,
+                 () -> a.union(new FreeBusyBitmap("20240102", 2, 30)));
+    assertThrows(IllegalArgumentException.class,
+                 () -> a.intersection(new FreeBusyBitmap("20240101", 3,
+                                                         30)));
+  }
+}
@@ -0,0 +1,102 @@
+package org.bedework.hlc.ro;
+
+import org.bedework.base.response.GetEntitiesResponse;
+import org.bedework.base.response.GetEntityResponse;
+import org.bedework.caldav.util.filter.FilterBase;
+import org.bedework.calfacade.BwCollection;
+import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.calsvci.CollectionsI;
+import org.bedework.hlc.common.AsyncHighLevelClient;
+import org.bedework.hlc.common.CalendarFormatter;
+import org.bedework.hlc.common.ConfigCommon;
+import org.bedework.hlc.common.EventFormatter;
+import org.bedework.hlc.common.views.TimeView;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/** Futures for the lookups a page usually starts together. Lookups
+ * which depend only on the principal run in parallel on clients of
+ * their own when there is a client factory. Views are made with
+ * expanders bound to the wrapped client so are run in order with the
+ * other operations on that client.
+ *
+ * @param <T> type of client
+ */
+public class AsyncReadOnlyHighLevelClient<T extends ReadOnlyHighLevelClient>
+        extends AsyncHighLevelClient<T> {
+  /**
+   * @param client the client - used by one request at a time
+   */
+  public AsyncReadOnlyHighLevelClient(final T client) {
+    super(client);
+  }
+
+  /**
+   * @param client the client - used by one request at a time
+   * @param clientFactory makes further clients for the same principal,
+   *                      each with its own low level client
+   */
+  public AsyncReadOnlyHighLevelClient(final T client,
+                                      final Supplier<T> clientFactory) {
+    super(client, clientFactory);
+  }
+
+  /**
+   * @return future for the admin groups
+   */
+  public CompletableFuture<GetEntitiesResponse<BwGroup<?>>> getAdminGroups() {
+    return callIndependent(ReadOnlyHighLevelClient::getAdminGroups);
+  }
+
+  /**
+   * @return future for the home collection
+   */
+  public CompletableFuture<GetEntityResponse<BwCollection>> getHomeCollection() {
+    return callIndependent(ReadOnlyHighLevelClient::getHomeCollection);
+  }
+
+  /**
+   * @return future for the root of the public collection tree
+   */
+  public CompletableFuture<GetEntityResponse<BwCollection>> getPublicCollection() {
+    return callIndependent(ReadOnlyHighLevelClient::getPublicCollection);
+  }
+
+  /**
+   * @param vals collections
+   * @return future for path -> status in the order of vals
+   */
+  public CompletableFuture<Map<String, CollectionsI.SynchStatusResponse>> getSynchStatuses(
+          final Collection<BwCollection> vals) {
+    return callIndependent(c -> c.getSynchStatuses(vals));
+  }
+
+  /** Make a view with the expanders of the wrapped client.
+   *
+   * @param viewPeriod as defined in BedeworkDefs
+   * @param curDay date within the view
+   * @param filter non-null to filter the results
+   * @param config supplies limits and year view settings
+   * @param filterExpr the filter expression of the view's search -
+   *                   null for none
+   * @param formatter makes the formatter for each event
+   * @return future for the view
+   */
+  public CompletableFuture<TimeView> makeTimeView(
+          final int viewPeriod,
+          final CalendarFormatter curDay,
+          final FilterBase filter,
+          final ConfigCommon config,
+          final String filterExpr,
+          final Function<EventInfo, EventFormatter> formatter) {
+    return call(c -> TimeView.make(viewPeriod, curDay, filter, config,
+                                   c.getRecurrenceExpander(formatter),
+                                   c.getDayExpander(filterExpr,
+                                                    formatter)));
+  }
+}
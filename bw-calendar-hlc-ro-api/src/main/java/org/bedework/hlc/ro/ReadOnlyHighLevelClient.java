@@ -4,8 +4,17 @@ import org.bedework.base.response.GetEntitiesResponse;
 import org.bedework.base.response.GetEntityResponse;
 import org.bedework.calfacade.BwCollection;
 import org.bedework.calfacade.BwGroup;
+import org.bedework.calfacade.indexing.SearchResult;
+import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calsvci.CollectionsI;
+import org.bedework.hlc.common.EventFormatter;
 import org.bedework.hlc.common.HighLevelClient;
+import org.bedework.hlc.common.SearchResultWindow;
+import org.bedework.hlc.common.views.TimeView;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.function.Function;
 
 /** Provides high level operations on the calendar store.
  * The client may be operating in guest mode or as an
@@ -46,6 +55,19 @@ public interface ReadOnlyHighLevelClient extends HighLevelClient {
    */
   GetEntityResponse<BwCollection> getCollection(String path);
 
+  /**
+   * @param path of collection
+   * @return response with child collections or error.
+   */
+  GetEntitiesResponse<BwCollection> getChildren(String path);
+
+  /** Only the public collection tree is searched.
+   *
+   * @param prefix start of path
+   * @return response with collections in path order or error.
+   */
+  GetEntitiesResponse<BwCollection> getCollectionsByPrefix(String prefix);
+
   /**
    * @param path of collection
    * @return true if open
@@ -59,10 +81,72 @@ public interface ReadOnlyHighLevelClient extends HighLevelClient {
   public void setCollectionOpenState(String path,
                                      boolean open);
 
+  /** Open or close a collection and all collections below it.
+   *
+   * @param path of collection
+   * @param open true if open
+   */
+  public void setSubtreeOpenState(String path,
+                                  boolean open);
+
   /**
    *
    * @param val collection
    * @return never null - requestStatus set for not an external subscription.
    */
   CollectionsI.SynchStatusResponse getSynchStatus(BwCollection val);
+
+  /** Status for a number of collections at once. Results may be
+   * up to a few seconds old.
+   *
+   * @param vals collections
+   * @return path -> status in the order of vals. Never null.
+   */
+  Map<String, CollectionsI.SynchStatusResponse> getSynchStatuses(
+          Collection<BwCollection> vals);
+
+  /* -------------------------------------------------
+   *                     Search
+   * ------------------------------------------------- */
+
+  /** Pages of the result are fetched through this client when
+   * SearchResultWindow.getPage is called. The window must only be
+   * used by requests of the session which owns this client.
+   *
+   * @param sres result of a search
+   * @param pageSize number of entries per page
+   * @return window onto the result
+   */
+  SearchResultWindow getSearchResultWindow(SearchResult sres,
+                                           int pageSize);
+
+  /* -------------------------------------------------
+   *                     Views
+   * ------------------------------------------------- */
+
+  /** An expander for views given recurring masters rather than
+   * instances. The instances of all the view's masters are fetched,
+   * expanded, through this client in one call for the whole view, so
+   * like the search window it must only be used by requests of the
+   * session which owns this client.
+   *
+   * @param formatter makes the formatter for each instance
+   * @return expander for TimeView.make
+   */
+  TimeView.RecurrenceExpander getRecurrenceExpander(
+          Function<EventInfo, EventFormatter> formatter);
+
+  /** An expander for views which hold only per-day counts. A day's
+   * events are fetched, expanded, through this client when the day
+   * is displayed, so it must only be used by requests of the session
+   * which owns this client.
+   *
+   * @param filter the filter expression of the view's search - null
+   *               for none
+   * @param formatter makes the formatter for each event
+   * @return expander for TimeView.make
+   */
+  TimeView.DayExpander getDayExpander(
+          String filter,
+          Function<EventInfo, EventFormatter> formatter);
 }
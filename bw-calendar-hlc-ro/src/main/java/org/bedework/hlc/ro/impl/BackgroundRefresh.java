@@ -0,0 +1,185 @@
+package org.bedework.hlc.ro.impl;
+
+import org.bedework.llc.ro.ReadOnlyLowLevelClient;
+import org.bedework.util.logging.BwLogger;
+import org.bedework.util.logging.Logged;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.bedework.util.servlet.ActionTypes.actionTypeAction;
+import static org.bedework.util.servlet.ConversationTypes.conversationTypeOnly;
+
+/** Refreshes the shared read-only caches on a background thread so
+ * that requests are served the cached values rather than waiting.
+ *
+ * <p>A request's own low level client is not thread-safe and belongs
+ * to that request so each refresh runs on a client of its own made by
+ * the client factory. The client is given a request of its own with
+ * requestIn and requestOut and is closed when the refresh is done.
+ * Without a client factory nothing is refreshed in the background.</p>
+ *
+ * <p>Only one refresh with a given key is pending at a time. A
+ * failed refresh is logged - the cached value stays in use.</p>
+ */
+final class BackgroundRefresh implements Logged {
+  private static final BackgroundRefresh instance =
+          new BackgroundRefresh();
+
+  /* access -> client. "" for a public client */
+  private volatile Function<String, ReadOnlyLowLevelClient> clientFactory;
+
+  private ExecutorService executor;
+
+  /* Refreshes submitted and not yet complete */
+  private final Map<String, CompletableFuture<Void>> pending =
+          new ConcurrentHashMap<>();
+
+  private BackgroundRefresh() {
+  }
+
+  static BackgroundRefresh getInstance() {
+    return instance;
+  }
+
+  /**
+   * @param val makes a client with the given access - "" for a
+   *            public client otherwise the principal href. Null to
+   *            stop refreshing in the background.
+   */
+  void setClientFactory(
+          final Function<String, ReadOnlyLowLevelClient> val) {
+    clientFactory = val;
+  }
+
+  /**
+   * @return true if refreshes can be submitted
+   */
+  boolean enabled() {
+    return clientFactory != null;
+  }
+
+  /** Run the work on a client with the given access unless a refresh
+   * with the same key is already pending.
+   *
+   * @param key identifies the refresh
+   * @param access "" for a public client otherwise the principal href
+   * @param work the refresh
+   * @return completes when the refresh is done, whether or not it
+   *         succeeded
+   */
+  CompletableFuture<Void> submit(
+          final String key,
+          final String access,
+          final Consumer<ReadOnlyLowLevelClient> work) {
+    final var fut = new CompletableFuture<Void>();
+    final var running = pending.putIfAbsent(key, fut);
+
+    if (running != null) {
+      return running;
+    }
+
+    try {
+      executor().execute(() -> {
+        try {
+          run(key, access, work);
+        } finally {
+          pending.remove(key, fut);
+          fut.complete(null);
+        }
+      });
+    } catch (final RejectedExecutionException ree) {
+      warn("Background refresh " + key + " rejected");
+      pending.remove(key, fut);
+      fut.complete(null);
+    }
+
+    return fut;
+  }
+
+  /** Stop the refresh thread - e.g. when the application is
+   * undeployed. A later submit starts a new one.
+   */
+  synchronized void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private synchronized ExecutorService executor() {
+    if (executor == null) {
+      executor = Executors.newSingleThreadExecutor(r -> {
+        final Thread t = new Thread(r, "bw-hlc-refresh");
+        t.setDaemon(true);
+        return t;
+      });
+    }
+
+    return executor;
+  }
+
+  private void run(final String key,
+                   final String access,
+                   final Consumer<ReadOnlyLowLevelClient> work) {
+    final var factory = clientFactory;
+    if (factory == null) {
+      return;
+    }
+
+    final long start = System.currentTimeMillis();
+    ReadOnlyLowLevelClient cl = null;
+
+    try {
+      cl = factory.apply(access);
+      cl.requestIn(conversationTypeOnly);
+
+      try {
+        work.accept(cl);
+      } finally {
+        cl.requestOut(conversationTypeOnly, actionTypeAction,
+                      System.currentTimeMillis() - start);
+      }
+
+      if (debug()) {
+        debug("Background refresh " + key + " took " +
+                      (System.currentTimeMillis() - start) + " millis");
+      }
+    } catch (final Throwable t) {
+      warn("Background refresh " + key + " failed: " + t.getMessage());
+    } finally {
+      if (cl != null) {
+        try {
+          cl.close();
+        } catch (final Throwable t) {
+          warn("Unable to close refresh client: " + t.getMessage());
+        }
+      }
+    }
+  }
+
+  /* =============================================================
+   *                   Logged methods
+   * ============================================================= */
+
+  private final BwLogger logger = new BwLogger();
+
+  @Override
+  public BwLogger getLogger() {
+    if ((logger.getLoggedClass() == null) && (logger.getLoggedName() == null)) {
+      logger.setLoggedClass(getClass());
+    }
+
+    return logger;
+  }
+}
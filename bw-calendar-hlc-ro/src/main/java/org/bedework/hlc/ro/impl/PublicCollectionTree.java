@@ -0,0 +1,363 @@
+package org.bedework.hlc.ro.impl;
+
+import org.bedework.calfacade.BwCollection;
+import org.bedework.llc.ro.ReadOnlyLowLevelClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** An immutable snapshot of the public collection tree shared by
+ * all read-only clients. Each snapshot carries a version which
+ * increases on every rebuild.
+ *
+ * <p>The snapshot is built with public access. Every principal can
+ * see at least that much of the public tree so nothing has to be
+ * filtered out for a particular user. Collections a user can see
+ * beyond that are not in the snapshot and are fetched with their own
+ * client.</p>
+ *
+ * <p>Once a snapshot is older than refreshInterval it is rebuilt in
+ * the background by BackgroundRefresh and callers continue to use the
+ * old snapshot meanwhile. Only the very first build is waited for. A
+ * missing public root is remembered in the same way.</p>
+ *
+ * <p>Without a background client the snapshot is built by guest
+ * requests with their own client. Other requests then use the
+ * snapshot if there is one and otherwise build a copy of their own
+ * which is not shared.</p>
+ *
+ * <p>Collections are indexed by path and by parent so lookups and
+ * subtree enumeration do not walk the tree. A sorted array of paths
+ * supports prefix queries. Callers are handed copies of the
+ * collections so the snapshot itself never changes.</p>
+ */
+final class PublicCollectionTree {
+  static long refreshInterval = 1000 * 60 * 5;
+
+  private static final AtomicLong versions = new AtomicLong();
+
+  /* Snapshots created before this are stale */
+  private static volatile long invalidated;
+
+  /* From the system properties */
+  private static volatile String publicRootPath;
+
+  private static volatile PublicCollectionTree current;
+
+  /* Held while a guest request builds the snapshot itself */
+  private static final ReentrantLock buildLock = new ReentrantLock();
+
+  private final long version;
+  private final long created;
+  private final BwCollection root;
+
+  /* Every collection in the tree - depth first */
+  private final List<BwCollection> collections;
+
+  private final Map<String, BwCollection> byPath;
+
+  /* parent path -> children in tree order */
+  private final Map<String, List<BwCollection>> children;
+
+  /* All paths sorted - for prefix queries */
+  private final String[] sortedPaths;
+
+  private PublicCollectionTree(final BwCollection root,
+                               final List<BwCollection> collections,
+                               final Map<String, List<BwCollection>> children) {
+    version = versions.incrementAndGet();
+    created = System.currentTimeMillis();
+    this.root = root;
+    this.collections = Collections.unmodifiableList(collections);
+    this.children = children;
+
+    byPath = new HashMap<>(collections.size() * 2);
+    sortedPaths = new String[collections.size()];
+
+    for (int i = 0; i < sortedPaths.length; i++) {
+      final var col = collections.get(i);
+      byPath.put(col.getPath(), col);
+      sortedPaths[i] = col.getPath();
+    }
+
+    Arrays.sort(sortedPaths);
+  }
+
+  /** Return the shared snapshot. If it is stale a rebuild is
+   * started in the background and the stale snapshot returned.
+   *
+   * @param cl client of the caller - only used to build the snapshot
+   *           when there is no background client
+   * @param guest true if cl has public access
+   * @return snapshot - null if the public root does not exist
+   */
+  static PublicCollectionTree get(final ReadOnlyLowLevelClient cl,
+                                  final boolean guest) {
+    var tree = current;
+
+    if ((tree != null) && !stale(tree)) {
+      return found(tree);
+    }
+
+    final var refresher = BackgroundRefresh.getInstance();
+
+    if (refresher.enabled()) {
+      final var fut = refresher.submit("publicTree", "",
+                                       c -> current = build(c));
+
+      if (tree == null) {
+        // The very first build - wait for it
+        fut.join();
+        tree = current;
+      }
+
+      if (tree != null) {
+        return found(tree);
+      }
+
+      // Failed - fall back to the caller's client
+    }
+
+    if (!guest) {
+      if (tree != null) {
+        return found(tree);
+      }
+
+      return found(build(cl));
+    }
+
+    if (tree != null) {
+      /* Stale - refresh unless someone else is */
+      if (!buildLock.tryLock()) {
+        return found(tree);
+      }
+    } else {
+      buildLock.lock();
+    }
+
+    try {
+      final var latest = current;
+      if ((latest != null) && (latest != tree)) {
+        // Rebuilt while we waited
+        return found(latest);
+      }
+
+      final var rebuilt = build(cl);
+      current = rebuilt;
+
+      return found(rebuilt);
+    } finally {
+      buildLock.unlock();
+    }
+  }
+
+  /**
+   * @param cl used the first time to read the system properties
+   * @return path of the public root, e.g. /public
+   */
+  static String getPublicRootPath(final ReadOnlyLowLevelClient cl) {
+    var res = publicRootPath;
+
+    if (res == null) {
+      final String root =
+              cl.getSystemProperties().getPublicCalendarRoot();
+
+      if (root.startsWith("/")) {
+        res = root;
+      } else {
+        res = "/" + root;
+      }
+
+      publicRootPath = res;
+    }
+
+    return res;
+  }
+
+  /** Force a rebuild on next use - e.g. after a public collection has
+   * been changed.
+   */
+  static void invalidate() {
+    invalidated = System.currentTimeMillis();
+  }
+
+  /**
+   * @return increases on every rebuild
+   */
+  long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return copy of the root of the tree
+   */
+  BwCollection getRoot() {
+    return copy(root);
+  }
+
+  /**
+   * @return copies of all collections in the tree, depth first
+   */
+  List<BwCollection> getCollections() {
+    return copies(collections);
+  }
+
+  /**
+   * @param path of collection
+   * @return copy of the collection or null if not in the tree
+   */
+  BwCollection getCollection(final String path) {
+    return copy(byPath.get(path));
+  }
+
+  /**
+   * @param path of collection
+   * @return true if in the tree
+   */
+  boolean contains(final String path) {
+    return byPath.containsKey(path);
+  }
+
+  /**
+   * @param path of collection
+   * @return copies of the children in tree order - empty for none or
+   *         not in tree
+   */
+  List<BwCollection> getChildren(final String path) {
+    final var res = children.get(path);
+    if (res == null) {
+      return new ArrayList<>();
+    }
+
+    return copies(res);
+  }
+
+  /**
+   * @param path of collection
+   * @return paths of the collection and all its descendants
+   */
+  List<String> getSubtreePaths(final String path) {
+    final List<String> res = new ArrayList<>();
+    if (!byPath.containsKey(path)) {
+      return res;
+    }
+
+    final List<String> work = new ArrayList<>();
+    work.add(path);
+
+    while (!work.isEmpty()) {
+      final String p = work.remove(work.size() - 1);
+      res.add(p);
+
+      for (final var ch: children.getOrDefault(p, List.of())) {
+        work.add(ch.getPath());
+      }
+    }
+
+    return res;
+  }
+
+  /**
+   * @param prefix start of path
+   * @return copies of the collections with paths starting with
+   *         prefix in path order
+   */
+  List<BwCollection> getByPrefix(final String prefix) {
+    int pos = Arrays.binarySearch(sortedPaths, prefix);
+    if (pos < 0) {
+      pos = -pos - 1;
+    }
+
+    final List<BwCollection> res = new ArrayList<>();
+    while ((pos < sortedPaths.length) &&
+            sortedPaths[pos].startsWith(prefix)) {
+      res.add(copy(byPath.get(sortedPaths[pos])));
+      pos++;
+    }
+
+    return res;
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private static boolean stale(final PublicCollectionTree tree) {
+    return (tree.created <= invalidated) ||
+            (System.currentTimeMillis() >= tree.created + refreshInterval);
+  }
+
+  /* A snapshot with no root stands for a missing public root */
+  private static PublicCollectionTree found(
+          final PublicCollectionTree tree) {
+    if ((tree == null) || (tree.root == null)) {
+      return null;
+    }
+
+    return tree;
+  }
+
+  private static BwCollection copy(final BwCollection col) {
+    if (col == null) {
+      return null;
+    }
+
+    return col.shallowClone();
+  }
+
+  private static List<BwCollection> copies(
+          final List<BwCollection> cols) {
+    final List<BwCollection> res = new ArrayList<>(cols.size());
+
+    for (final var col: cols) {
+      res.add(col.shallowClone());
+    }
+
+    return res;
+  }
+
+  private static PublicCollectionTree build(
+          final ReadOnlyLowLevelClient cl) {
+    final var pubRoot = cl.getCollection(getPublicRootPath(cl));
+    if (pubRoot == null) {
+      return new PublicCollectionTree(null, new ArrayList<>(),
+                                      new HashMap<>());
+    }
+
+    final List<BwCollection> cols = new ArrayList<>();
+    final Map<String, List<BwCollection>> children = new HashMap<>();
+    final var root = cloneTree(cl, pubRoot, cols, children);
+
+    return new PublicCollectionTree(root, cols, children);
+  }
+
+  private static BwCollection cloneTree(
+          final ReadOnlyLowLevelClient cl,
+          final BwCollection col,
+          final List<BwCollection> cols,
+          final Map<String, List<BwCollection>> children) {
+    final BwCollection ccol = col.shallowClone();
+    cols.add(ccol);
+
+    final Collection<BwCollection> chs = cl.getChildren(col);
+    if ((chs == null) || chs.isEmpty()) {
+      return ccol;
+    }
+
+    final List<BwCollection> cchs = new ArrayList<>(chs.size());
+    for (final var ch: chs) {
+      cchs.add(cloneTree(cl, ch, cols, children));
+    }
+
+    children.put(ccol.getPath(), Collections.unmodifiableList(cchs));
+
+    return ccol;
+  }
+}
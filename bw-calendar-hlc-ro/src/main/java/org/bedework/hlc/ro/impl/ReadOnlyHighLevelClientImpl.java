@@ -3,22 +3,36 @@ package org.bedework.hlc.ro.impl;
 import org.bedework.base.response.GetEntitiesResponse;
 import org.bedework.base.response.GetEntityResponse;
 import org.bedework.calfacade.BwCollection;
+import org.bedework.calfacade.BwEvent;
 import org.bedework.calfacade.BwGroup;
 import org.bedework.calfacade.BwPrincipal;
+import org.bedework.calfacade.indexing.SearchResult;
 import org.bedework.calfacade.svc.BwCalSuite;
+import org.bedework.calfacade.svc.EventInfo;
 import org.bedework.calsvci.CollectionsI;
+import org.bedework.hlc.common.EventFormatter;
+import org.bedework.hlc.common.GroupMembershipIndex;
 import org.bedework.hlc.common.HighLevelClientImpl;
+import org.bedework.hlc.common.SearchResultWindow;
+import org.bedework.hlc.common.metrics.JfrEvents;
+import org.bedework.hlc.common.metrics.ModuleMetrics;
+import org.bedework.hlc.common.views.TimeView;
 import org.bedework.hlc.ro.ReadOnlyHighLevelClient;
 import org.bedework.llc.common.LowLevelClient;
 import org.bedework.llc.ro.ReadOnlyLowLevelClient;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.Function;
+
+import static org.bedework.base.response.Response.Status.notFound;
 
 public class ReadOnlyHighLevelClientImpl
         extends HighLevelClientImpl
@@ -46,6 +60,34 @@ public class ReadOnlyHighLevelClientImpl
     return (ReadOnlyLowLevelClient)cl;
   }
 
+  /** Fill the shared admin group and public collection caches. For
+   * use as a StartupWarmUp step.
+   */
+  public void warmUp() {
+    refreshAdminGroupInfo();
+    publicTree();
+  }
+
+  /** Set the source of the clients used to refresh the shared
+   * caches in the background. Each client is used for one refresh
+   * and then closed.
+   *
+   * @param val makes a client with the given access - "" for a
+   *            public client otherwise the principal href. Null to
+   *            stop refreshing in the background.
+   */
+  public static void setRefreshClientFactory(
+          final Function<String, ReadOnlyLowLevelClient> val) {
+    BackgroundRefresh.getInstance().setClientFactory(val);
+  }
+
+  /** Stop the background refresh thread - call when the application
+   * is undeployed.
+   */
+  public static void stopRefresh() {
+    BackgroundRefresh.getInstance().shutdown();
+  }
+
   /* ------------------------------------------------------------
    *                     Admin Groups
    * ------------------------------------------------------------ */
@@ -60,18 +102,93 @@ public class ReadOnlyHighLevelClientImpl
 
   @Override
   public GetEntityResponse<BwCollection> getHomeCollection() {
-    return null;
+    if (isGuestMode()) {
+      return getPublicCollection();
+    }
+
+    try {
+      return collectionResponse(
+              memo("home", "", () -> getROCl().getHome()));
+    } catch (final Throwable t) {
+      return new GetEntityResponse<BwCollection>().error(t);
+    }
   }
 
   @Override
   public GetEntityResponse<BwCollection> getPublicCollection() {
-    return null;
+    try {
+      final var tree = publicTree();
+      if (tree == null) {
+        return collectionResponse(null);
+      }
+
+      return collectionResponse(tree.getRoot());
+    } catch (final Throwable t) {
+      return new GetEntityResponse<BwCollection>().error(t);
+    }
   }
 
   @Override
   public GetEntityResponse<BwCollection> getCollection(
           final String path) {
-    return null;
+    try {
+      if (isPublicPath(path)) {
+        final var tree = publicTree();
+        if (tree != null) {
+          final var col = tree.getCollection(path);
+          if (col != null) {
+            return collectionResponse(col);
+          }
+        }
+      }
+
+      return collectionResponse(fetchCollection(path));
+    } catch (final Throwable t) {
+      return new GetEntityResponse<BwCollection>().error(t);
+    }
+  }
+
+  @Override
+  public GetEntitiesResponse<BwCollection> getChildren(
+          final String path) {
+    try {
+      if (isPublicPath(path)) {
+        final var tree = publicTree();
+        if ((tree != null) && tree.contains(path)) {
+          return new GetEntitiesResponse<BwCollection>()
+                  .setEntities(tree.getChildren(path));
+        }
+      }
+
+      final var col = fetchCollection(path);
+      if (col == null) {
+        return new GetEntitiesResponse<BwCollection>()
+                .setStatus(notFound);
+      }
+
+      return new GetEntitiesResponse<BwCollection>()
+              .setEntities(memo("children", path,
+                                () -> getROCl().getChildren(col)));
+    } catch (final Throwable t) {
+      return new GetEntitiesResponse<BwCollection>().error(t);
+    }
+  }
+
+  @Override
+  public GetEntitiesResponse<BwCollection> getCollectionsByPrefix(
+          final String prefix) {
+    try {
+      final var tree = publicTree();
+      if (tree == null) {
+        return new GetEntitiesResponse<BwCollection>()
+                .setEntities(new ArrayList<>());
+      }
+
+      return new GetEntitiesResponse<BwCollection>()
+              .setEntities(tree.getByPrefix(prefix));
+    } catch (final Throwable t) {
+      return new GetEntitiesResponse<BwCollection>().error(t);
+    }
   }
 
   @Override
@@ -89,17 +206,228 @@ public class ReadOnlyHighLevelClientImpl
     }
   }
 
+  @Override
+  public void setSubtreeOpenState(final String path,
+                                  final boolean open) {
+    List<String> paths = null;
+
+    if (isPublicPath(path)) {
+      final var tree = publicTree();
+      if (tree != null) {
+        paths = tree.getSubtreePaths(path);
+      }
+    }
+
+    if ((paths == null) || paths.isEmpty()) {
+      setCollectionOpenState(path, open);
+      return;
+    }
+
+    if (open) {
+      collectionOpenState.addAll(paths);
+    } else {
+      paths.forEach(collectionOpenState::remove);
+    }
+  }
+
   @Override
   public CollectionsI.SynchStatusResponse getSynchStatus(
           final BwCollection val) {
-    return null;
+    return getSynchStatuses(List.of(val)).get(val.getPath());
+  }
+
+  @Override
+  public Map<String, CollectionsI.SynchStatusResponse> getSynchStatuses(
+          final Collection<BwCollection> vals) {
+    return SynchStatusCache.get(getROCl(), access(), vals);
+  }
+
+  /* ------------------------------------------------------------
+   *                     Search
+   * ------------------------------------------------------------ */
+
+  @Override
+  public SearchResultWindow getSearchResultWindow(final SearchResult sres,
+                                                  final int pageSize) {
+    return new SearchResultWindow(
+            sres,
+            (start, num) -> {
+              final var res = getROCl().getSearchResult(sres, start, num);
+              if (res == null) {
+                return List.of();
+              }
+
+              return res;
+            },
+            pageSize);
+  }
+
+  /* ------------------------------------------------------------
+   *                     Views
+   * ------------------------------------------------------------ */
+
+  @Override
+  public TimeView.RecurrenceExpander getRecurrenceExpander(
+          final Function<EventInfo, EventFormatter> formatter) {
+    return (masters, start, end, overridden) -> {
+      /* The store expands all the masters in one fetch. uids are only
+         unique within a collection so masters are matched on uid and
+         collection. The masters themselves and instances the view
+         holds as overrides are dropped.
+       */
+      final Map<String, EventFormatter> byKey = new HashMap<>();
+      final StringBuilder filter = new StringBuilder("(");
+
+      for (final EventFormatter master: masters) {
+        final BwEvent mev = master.getEvent();
+
+        if (byKey.put(mev.getColPath() + "|" + mev.getUid(),
+                      master) != null) {
+          continue;
+        }
+
+        if (filter.length() > 1) {
+          filter.append('|');
+        }
+
+        filter.append("uid=\"")
+              .append(escapeFilterValue(mev.getUid()))
+              .append('"');
+      }
+
+      filter.append(')');
+
+      final Collection<EventInfo> eis =
+              getROCl().getEvents(filter.toString(), start, end, true);
+      if (eis == null) {
+        return List.of();
+      }
+
+      final List<EventFormatter> res = new ArrayList<>(eis.size());
+
+      for (final EventInfo ei: eis) {
+        final BwEvent ev = ei.getEvent();
+        final String rid = ev.getRecurrenceId();
+
+        if (rid == null) {
+          continue;
+        }
+
+        final EventFormatter master =
+                byKey.get(ev.getColPath() + "|" + ev.getUid());
+        if (master == null) {
+          continue;
+        }
+
+        final Set<String> ovs =
+                overridden.get(master.getEvent().getHref());
+        if ((ovs != null) && ovs.contains(rid)) {
+          continue;
+        }
+
+        res.add(formatter.apply(ei));
+      }
+
+      return res;
+    };
+  }
+
+  @Override
+  public TimeView.DayExpander getDayExpander(
+          final String filter,
+          final Function<EventInfo, EventFormatter> formatter) {
+    return (start, end) -> {
+      final Collection<EventInfo> eis =
+              getROCl().getEvents(filter, start, end, true);
+      if (eis == null) {
+        return List.of();
+      }
+
+      final List<EventFormatter> res = new ArrayList<>(eis.size());
+
+      for (final EventInfo ei: eis) {
+        res.add(formatter.apply(ei));
+      }
+
+      return res;
+    };
+  }
+
+  private BwCollection fetchCollection(final String path) {
+    return memo("collection", path,
+                () -> getROCl().getCollection(path));
+  }
+
+  /* Identifies what this client can see for the shared caches.
+   * Guests all see the same - anyone else what their own access
+   * allows.
+   */
+  private String access() {
+    if (isGuestMode()) {
+      return "";
+    }
+
+    return getCurrentPrincipal().getPrincipalRef();
+  }
+
+  private PublicCollectionTree publicTree() {
+    return memo("publicTree", "",
+                () -> PublicCollectionTree.get(getROCl(),
+                                               isGuestMode()));
+  }
+
+  private boolean isPublicPath(final String path) {
+    final var root = PublicCollectionTree.getPublicRootPath(getROCl());
+
+    return (path != null) && path.startsWith(root) &&
+            ((path.length() == root.length()) ||
+                     (path.charAt(root.length()) == '/'));
+  }
+
+  /* Quoted filter values may not hold an unescaped quote */
+  private static String escapeFilterValue(final String val) {
+    return val.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private static GetEntityResponse<BwCollection> collectionResponse(
+          final BwCollection col) {
+    final var resp = new GetEntityResponse<BwCollection>();
+
+    if (col == null) {
+      return resp.setStatus(notFound);
+    }
+
+    return resp.setEntity(col);
+  }
+
+  /**
+   * @return the cloned cal suites fetched with the admin groups - may
+   *         be null before the first refresh
+   */
+  protected Collection<BwCalSuite> getCalSuitesInfo() {
+    synchronized (adminGroupLocker) {
+      return suites;
+    }
   }
 
   protected GetEntitiesResponse<BwGroup<?>> refreshAdminGroupInfo() {
+    final var jfr = new JfrEvents.AdminGroupRefresh();
+    jfr.begin();
+
+    try {
+      return doRefreshAdminGroupInfo(jfr);
+    } finally {
+      jfr.commit();
+    }
+  }
+
+  private GetEntitiesResponse<BwGroup<?>> doRefreshAdminGroupInfo(
+          final JfrEvents.AdminGroupRefresh jfr) {
     final var res = adminGroupsInfo; // Save in case adminGroupsInfo set to null
     if ((res != null) &&
             (System.currentTimeMillis() < (lastAdminGroupsInfoRefresh +
                                                    adminGroupsInfoRefreshInterval))) {
+      jfr.groups = res.size();
       return new GetEntitiesResponse<BwGroup<?>>().setEntities(res);
     }
 
@@ -130,63 +458,107 @@ public class ReadOnlyHighLevelClientImpl
       calsuiteAdminGroupsInfo = new ArrayList<>();
 
       final Map<String, BwPrincipal<?>> cloned = new HashMap<>();
+      final CloneStats stats = new CloneStats();
 
       final var ags = getROCl().getAdminGroups(true);
 
       for (final var g: ags) {
-        final var cg = cloneGroup(g, cloned);
+        final var cg = cloneGroup(g, cloned, stats);
 
         if (groupHrefs.contains(cg.getPrincipalRef())) {
           calsuiteAdminGroupsInfo.add(cg);
         }
 
-        // Get the memberships for this group.
-        final var mgs = getROCl().getAllAdminGroups(g);
+        adminGroupsInfo.add(cg);
+      }
 
-        for (final var mg: mgs) {
-          final var cmg = cloneGroup(mg, cloned);
+      final var index = GroupMembershipIndex.build(adminGroupsInfo);
 
-          cg.addGroup(cmg);
+      /* The memberships of each group come from the members of the
+         groups already fetched rather than a fetch per group */
+      for (final var cg: adminGroupsInfo) {
+        for (final String href: index.getGroups(cg.getPrincipalRef())) {
+          cg.addGroup((BwGroup<?>)cloned.get(href));
         }
-
-        adminGroupsInfo.add(cg);
       }
 
+      GroupMembershipIndex.setCurrent(index);
+
       lastAdminGroupsInfoRefresh = System.currentTimeMillis();
 
+      jfr.refreshed = true;
+      jfr.suites = suites.size();
+      jfr.groups = adminGroupsInfo.size();
+      jfr.principals = cloned.size();
+      jfr.memberships = stats.edges;
+      jfr.depth = index.getNestingDepth();
+
+      ModuleMetrics.getInstance().groupGraph(cloned.size(),
+                                             stats.edges,
+                                             index.getNestingDepth());
+
       return new GetEntitiesResponse<BwGroup<?>>()
               .setEntities(adminGroupsInfo);
     }
   }
 
+  /* Counts for one admin group refresh */
+  private static class CloneStats {
+    int edges;
+  }
+
+  /* A group waiting to have its members cloned */
+  private record CloneWork(BwGroup<?> orig,
+                           BwGroup<?> copy) {
+  }
+
+  /* Copy the group and everything reachable through its members.
+   * Each principal is cloned once - the clone is registered before
+   * its members are looked at so cycles end at the existing clone.
+   */
   private BwGroup<?> cloneGroup(final BwGroup<?> g,
-                                final Map<String, BwPrincipal<?>> cloned) {
-    var cg = (BwGroup<?>)cloned.get(g.getPrincipalRef());
+                                final Map<String, BwPrincipal<?>> cloned,
+                                final CloneStats stats) {
+    final var existing = (BwGroup<?>)cloned.get(g.getPrincipalRef());
 
-    if (cg != null) {
-      return cg;
+    if (existing != null) {
+      return existing;
     }
 
-    cg = g.shallowClone();
+    final BwGroup<?> cg = g.shallowClone();
     cloned.put(g.getPrincipalRef(), cg);
 
-    final var ms = g.getGroupMembers();
-    if (ms == null) {
-      return cg;
-    }
+    final ArrayDeque<CloneWork> work = new ArrayDeque<>();
+    work.add(new CloneWork(g, cg));
+
+    while (!work.isEmpty()) {
+      final CloneWork ent = work.poll();
+      final var orig = ent.orig();
+      final var copy = ent.copy();
 
-    for (final var mbr: ms) {
-      BwPrincipal<?> cmbr = cloned.get(mbr.getPrincipalRef());
+      final var ms = orig.getGroupMembers();
+      if (ms == null) {
+        continue;
+      }
+
+      for (final var mbr: ms) {
+        stats.edges++;
 
-      if (cmbr == null) {
-        if (mbr instanceof BwGroup) {
-          cmbr = cloneGroup((BwGroup<?>)mbr, cloned);
-        } else {
-          cmbr = (BwPrincipal<?>)mbr.clone();
+        BwPrincipal<?> cmbr = cloned.get(mbr.getPrincipalRef());
+
+        if (cmbr == null) {
+          if (mbr instanceof final BwGroup<?> mg) {
+            final BwGroup<?> cmg = mg.shallowClone();
+            work.add(new CloneWork(mg, cmg));
+            cmbr = cmg;
+          } else {
+            cmbr = (BwPrincipal<?>)mbr.clone();
+          }
+          cloned.put(mbr.getPrincipalRef(), cmbr);
         }
-        cloned.put(mbr.getPrincipalRef(), cmbr);
+
+        copy.addGroupMember(cmbr);
       }
-      cg.addGroupMember(cmbr);
     }
 
     return cg;
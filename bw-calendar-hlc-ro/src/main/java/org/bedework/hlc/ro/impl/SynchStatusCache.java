@@ -0,0 +1,206 @@
+package org.bedework.hlc.ro.impl;
+
+import org.bedework.calfacade.BwCollection;
+import org.bedework.calsvci.CollectionsI;
+import org.bedework.llc.ro.ReadOnlyLowLevelClient;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/** Recently fetched synch status of subscriptions shared by all
+ * read-only clients and keyed by principal and collection path - the
+ * status a principal sees depends on their access.
+ *
+ * <p>An entry younger than ttl is returned as is. An older entry, up
+ * to maxAge, is also returned straight away and a refresh is submitted
+ * to BackgroundRefresh - callers keep getting the old value until that
+ * completes. A failed refresh is logged and the old value kept. Beyond
+ * maxAge the caller fetches.</p>
+ *
+ * <p>The low level client only fetches one status at a time. All the
+ * statuses a call needs are fetched together after the cache has been
+ * consulted, each collection once. A caller needing a status another
+ * request is already fetching waits for that fetch rather than making
+ * its own.</p>
+ */
+final class SynchStatusCache {
+  static long ttl = 15 * 1000;
+  static long maxAge = 60 * 1000;
+
+  /* Beyond this the least recently used entries are dropped */
+  static int maxCached = 5000;
+
+  private static class Entry {
+    final CollectionsI.SynchStatusResponse status;
+    final long fetched;
+
+    Entry(final CollectionsI.SynchStatusResponse status) {
+      this.status = status;
+      fetched = System.currentTimeMillis();
+    }
+  }
+
+  private static final Map<String, Entry> cache =
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    final Map.Entry<String, Entry> eldest) {
+              return size() > maxCached;
+            }
+          };
+
+  /* Fetches under way */
+  private static final Map<String,
+          CompletableFuture<CollectionsI.SynchStatusResponse>> fetching =
+          new ConcurrentHashMap<>();
+
+  private SynchStatusCache() {
+  }
+
+  /** Return the status for each collection. Cached values are used
+   * where possible and the rest are fetched together.
+   *
+   * @param cl client to fetch with
+   * @param access "" for guests otherwise the principal href
+   * @param cols collections - normally external subscriptions
+   * @return path -> status in the order of cols
+   */
+  static Map<String, CollectionsI.SynchStatusResponse> get(
+          final ReadOnlyLowLevelClient cl,
+          final String access,
+          final Collection<BwCollection> cols) {
+    final Map<String, CollectionsI.SynchStatusResponse> res =
+            new LinkedHashMap<>();
+
+    /* Missing or too old - we fetch and others wait for us */
+    final Map<BwCollection,
+            CompletableFuture<CollectionsI.SynchStatusResponse>> owned =
+            new LinkedHashMap<>();
+
+    /* Missing or too old - someone else is fetching */
+    final Map<BwCollection,
+            CompletableFuture<CollectionsI.SynchStatusResponse>> waits =
+            new LinkedHashMap<>();
+
+    final var refresher = BackgroundRefresh.getInstance();
+    final long now = System.currentTimeMillis();
+
+    for (final var col: cols) {
+      final String path = col.getPath();
+
+      if (res.containsKey(path)) {
+        continue;
+      }
+
+      final String key = key(access, path);
+      final Entry ent;
+
+      synchronized (cache) {
+        ent = cache.get(key);
+      }
+
+      if (ent != null) {
+        final long age = now - ent.fetched;
+
+        if (age < maxAge) {
+          res.put(path, ent.status);
+
+          if ((age >= ttl) && refresher.enabled()) {
+            refresher.submit("synch|" + key, access,
+                             c -> fetch(c, access, col));
+          }
+          continue;
+        }
+      }
+
+      res.put(path, null);
+
+      final var fut =
+              new CompletableFuture<CollectionsI.SynchStatusResponse>();
+      final var current = fetching.putIfAbsent(key, fut);
+
+      if (current == null) {
+        owned.put(col, fut);
+      } else {
+        waits.put(col, current);
+      }
+    }
+
+    try {
+      for (final var ent: owned.entrySet()) {
+        final var col = ent.getKey();
+        final var status = fetch(cl, access, col);
+
+        res.put(col.getPath(), status);
+        ent.getValue().complete(status);
+      }
+    } finally {
+      for (final var ent: owned.entrySet()) {
+        final var fut = ent.getValue();
+
+        fetching.remove(key(access, ent.getKey().getPath()), fut);
+
+        /* We failed - let waiters fetch for themselves */
+        fut.complete(null);
+      }
+    }
+
+    for (final var ent: waits.entrySet()) {
+      final var col = ent.getKey();
+      CollectionsI.SynchStatusResponse status = null;
+
+      try {
+        status = ent.getValue().get();
+      } catch (final InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      } catch (final ExecutionException ignored) {
+      }
+
+      if (status == null) {
+        status = fetch(cl, access, col);
+      }
+
+      res.put(col.getPath(), status);
+    }
+
+    return res;
+  }
+
+  /** Discard any cached status for the collection.
+   *
+   * @param path of collection
+   */
+  static void invalidate(final String path) {
+    final String suffix = "|" + path;
+
+    synchronized (cache) {
+      cache.keySet().removeIf(k -> k.endsWith(suffix));
+    }
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  private static CollectionsI.SynchStatusResponse fetch(
+          final ReadOnlyLowLevelClient cl,
+          final String access,
+          final BwCollection col) {
+    final var status = cl.getSynchStatus(col);
+
+    synchronized (cache) {
+      cache.put(key(access, col.getPath()), new Entry(status));
+    }
+
+    return status;
+  }
+
+  private static String key(final String access,
+                            final String path) {
+    return access + "|" + path;
+  }
+}
@@ -0,0 +1,53 @@
+package org.bedework.hlc.rw;
+
+import org.bedework.base.response.Response;
+import org.bedework.calfacade.svc.EventInfo;
+
+/** The store operations used by the batched event writes of
+ * ReadWriteHighLevelClient. Supplied by whatever created the client
+ * and usually implemented with the read-write low level client.
+ *
+ * <p>Writes are made within the current transaction. commit ends that
+ * transaction and starts another so a batch is committed in groups
+ * rather than one event at a time, and rollback discards a group.</p>
+ */
+public interface EventStore {
+  /**
+   * @param ei new event
+   * @return ok or an error
+   */
+  Response<?> addEvent(EventInfo ei);
+
+  /**
+   * @param ei changed event
+   * @return ok or an error
+   */
+  Response<?> updateEvent(EventInfo ei);
+
+  /**
+   * @param ei event to delete
+   * @return ok or an error
+   */
+  Response<?> deleteEvent(EventInfo ei);
+
+  /** Commit writes made since the last commit and start a new
+   * transaction.
+   *
+   * <p>If this throws none of the writes made since the last commit
+   * are in the store and a new transaction has been started, so later
+   * writes may go ahead.</p>
+   *
+   * @throws RuntimeException if the commit failed
+   */
+  void commit();
+
+  /** Discard writes made since the last commit, including any partial
+   * effects of a failed write, and start a new transaction.
+   *
+   * <p>If this throws the state of the store is unknown and no more
+   * writes are made with it.</p>
+   *
+   * @throws RuntimeException if the rollback failed
+   */
+  void rollback();
+}
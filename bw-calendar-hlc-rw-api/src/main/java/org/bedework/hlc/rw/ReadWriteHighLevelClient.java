@@ -1,11 +1,74 @@
 package org.bedework.hlc.rw;
 
+import org.bedework.base.response.Response;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.hlc.common.EventDates;
 import org.bedework.hlc.ro.ReadOnlyHighLevelClient;
 
+import java.util.Collection;
+import java.util.List;
+
 /** Provides high level operations on the calendar store.
  * The client may be operating in guest mode or as an
  * authenticated user.
  */
 public interface ReadWriteHighLevelClient extends
         ReadOnlyHighLevelClient {
+  /* -------------------------------------------------
+   *                     Batched event writes
+   *
+   * Events are validated before any is written and are written with
+   * the client's EventStore in groups, each group committed as one
+   * transaction. The responses are in the same order as the events.
+   *
+   * A failed write rolls back its group: the events already written
+   * in that group get an error response and writing goes on with a
+   * new group. A failed commit fails every event in its group and none
+   * of them is stored.
+   * ------------------------------------------------- */
+
+  /** By default events are written with the client's read-write low
+   * level client.
+   *
+   * @param val used by the batched writes to write the events
+   */
+  void setEventStore(EventStore val);
+
+  /**
+   * @param eis new events
+   * @return a response per event
+   */
+  List<Response<?>> addEvents(Collection<EventInfo> eis);
+
+  /** If dates is given its one form state - start, end, end type
+   * and duration - is applied to every event so they all end up with
+   * the same dates. Use shiftEvents to move the dates of each event.
+   *
+   * @param eis changed events
+   * @param dates if not null the dates are applied to every event
+   * @return a response per event
+   */
+  List<Response<?>> updateEvents(Collection<EventInfo> eis,
+                                 EventDates dates);
+
+  /** Move the dates of many events by the same amount. Events whose
+   * dates do not change are not written and get an exists response.
+   * If dates or shift is null every event gets a validation error.
+   * Events which are not stored, e.g. in a group which was rolled
+   * back, get their original dates back.
+   *
+   * @param eis events to move
+   * @param dates does the date arithmetic
+   * @param shift the change
+   * @return a response per event
+   */
+  List<Response<?>> shiftEvents(Collection<EventInfo> eis,
+                                EventDates dates,
+                                EventDates.DateShift shift);
+
+  /**
+   * @param eis events to delete
+   * @return a response per event
+   */
+  List<Response<?>> deleteEvents(Collection<EventInfo> eis);
 }
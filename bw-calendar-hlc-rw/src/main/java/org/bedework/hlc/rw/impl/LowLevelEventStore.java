@@ -0,0 +1,49 @@
+package org.bedework.hlc.rw.impl;
+
+import org.bedework.base.response.Response;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.hlc.rw.EventStore;
+import org.bedework.llc.rw.ReadWriteLowLevelClient;
+
+/** The EventStore used by default by ReadWriteHighLevelClientImpl.
+ * Events are written with the read-write low level client of the
+ * high level client, within that client's current transaction.
+ *
+ * <p>No scheduling messages or invitations are sent for the events.
+ * A failed add is rolled back by the low level client.</p>
+ */
+class LowLevelEventStore implements EventStore {
+  private final ReadWriteLowLevelClient cl;
+
+  /**
+   * @param cl writes the events
+   */
+  LowLevelEventStore(final ReadWriteLowLevelClient cl) {
+    this.cl = cl;
+  }
+
+  @Override
+  public Response<?> addEvent(final EventInfo ei) {
+    return cl.addEvent(ei, true, true);
+  }
+
+  @Override
+  public Response<?> updateEvent(final EventInfo ei) {
+    return cl.updateEvent(ei, true, null, false);
+  }
+
+  @Override
+  public Response<?> deleteEvent(final EventInfo ei) {
+    return cl.deleteEvent(ei, false);
+  }
+
+  @Override
+  public void commit() {
+    cl.flushAll();
+  }
+
+  @Override
+  public void rollback() {
+    cl.rollback();
+  }
+}
@@ -1,13 +1,380 @@
 package org.bedework.hlc.rw.impl;
 
+import org.bedework.base.response.Response;
+import org.bedework.calfacade.BwDateTime;
+import org.bedework.calfacade.BwEvent;
+import org.bedework.calfacade.svc.EventInfo;
+import org.bedework.hlc.common.EventDates;
 import org.bedework.hlc.ro.impl.ReadOnlyHighLevelClientImpl;
+import org.bedework.hlc.rw.EventStore;
 import org.bedework.hlc.rw.ReadWriteHighLevelClient;
 import org.bedework.llc.common.LowLevelClient;
+import org.bedework.llc.rw.ReadWriteLowLevelClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.bedework.base.response.Response.Status.exists;
+import static org.bedework.base.response.Response.Status.validationError;
 
 public class ReadWriteHighLevelClientImpl
         extends ReadOnlyHighLevelClientImpl
         implements ReadWriteHighLevelClient {
+  private enum WriteOp {
+    add, update, delete
+  }
+
+  /* The dates shiftEvents may change */
+  private record SavedDates(BwDateTime start,
+                            BwDateTime end,
+                            String duration,
+                            char endType,
+                            boolean noStart) {
+    static SavedDates save(final BwEvent ev) {
+      return new SavedDates(ev.getDtstart(), ev.getDtend(),
+                            ev.getDuration(), ev.getEndType(),
+                            ev.getNoStart());
+    }
+
+    void restore(final BwEvent ev) {
+      ev.setDtstart(start);
+      ev.setDtend(end);
+      ev.setDuration(duration);
+      ev.setEndType(endType);
+      ev.setNoStart(noStart);
+    }
+  }
+
+  private EventStore eventStore;
+
+  private int writeGroupSize = 100;
+
   public ReadWriteHighLevelClientImpl(final LowLevelClient cl) {
     super(cl);
+
+    eventStore = new LowLevelEventStore(getRWCl());
+  }
+
+  public ReadWriteLowLevelClient getRWCl() {
+    return (ReadWriteLowLevelClient)cl;
+  }
+
+  /**
+   * @param val number of events committed in one transaction by the
+   *            batched writes
+   */
+  public void setWriteGroupSize(final int val) {
+    writeGroupSize = Math.max(1, val);
+  }
+
+  /**
+   * @return number of events committed in one transaction
+   */
+  public int getWriteGroupSize() {
+    return writeGroupSize;
+  }
+
+  @Override
+  public void setEventStore(final EventStore val) {
+    eventStore = val;
+  }
+
+  @Override
+  public List<Response<?>> addEvents(final Collection<EventInfo> eis) {
+    return write(eis, WriteOp.add, null);
+  }
+
+  @Override
+  public List<Response<?>> updateEvents(final Collection<EventInfo> eis,
+                                        final EventDates dates) {
+    final Map<EventInfo, Response<?>> dateResults =
+            new IdentityHashMap<>();
+
+    if (dates != null) {
+      for (final EventInfo ei: eis) {
+        if ((ei == null) || (ei.getEvent() == null)) {
+          continue;
+        }
+
+        final var resp = dates.updateEvent(ei);
+        if (!resp.isOk() && (resp.getStatus() != exists)) {
+          dateResults.put(ei, resp);
+        }
+      }
+    }
+
+    return write(eis, WriteOp.update, dateResults);
+  }
+
+  @Override
+  public List<Response<?>> shiftEvents(final Collection<EventInfo> eis,
+                                       final EventDates dates,
+                                       final EventDates.DateShift shift) {
+    if ((dates == null) || (shift == null)) {
+      final List<Response<?>> res = new ArrayList<>(eis.size());
+      for (int i = 0; i < eis.size(); i++) {
+        res.add(invalid("No date shift"));
+      }
+
+      return res;
+    }
+
+    final Map<EventInfo, Response<?>> dateResults =
+            new IdentityHashMap<>();
+    final Map<EventInfo, SavedDates> saved = new IdentityHashMap<>();
+    final List<EventInfo> present = new ArrayList<>(eis.size());
+
+    for (final EventInfo ei: eis) {
+      if ((ei != null) && (ei.getEvent() != null)) {
+        present.add(ei);
+        saved.putIfAbsent(ei, SavedDates.save(ei.getEvent()));
+      }
+    }
+
+    /* Unchanged events keep their exists response and are not written */
+    dates.shiftEvents(present, shift, (ei, resp) -> {
+      if (!resp.isOk()) {
+        dateResults.put(ei, resp);
+      }
+    });
+
+    final var res = write(eis, WriteOp.update, dateResults);
+
+    /* Events not stored - failed or rolled back - get their dates back */
+    int i = 0;
+    for (final EventInfo ei: eis) {
+      if (res.get(i).isOk()) {
+        saved.remove(ei);
+      }
+      i++;
+    }
+
+    for (final var ent: saved.entrySet()) {
+      ent.getValue().restore(ent.getKey().getEvent());
+    }
+
+    return res;
+  }
+
+  @Override
+  public List<Response<?>> deleteEvents(final Collection<EventInfo> eis) {
+    return write(eis, WriteOp.delete, null);
+  }
+
+  /* ====================================================================
+   *                Private methods
+   * ==================================================================== */
+
+  /* Validate every event then write the valid ones in groups of
+   * writeGroupSize, committing after each group. A failed write rolls
+   * back its group. preset holds responses already decided for some
+   * events.
+   */
+  private List<Response<?>> write(final Collection<EventInfo> eis,
+                                  final WriteOp op,
+                                  final Map<EventInfo, Response<?>> preset) {
+    final long start = System.currentTimeMillis();
+    final List<EventInfo> events = new ArrayList<>(eis);
+    final int num = events.size();
+    final Response<?>[] results = new Response<?>[num];
+
+    if (eventStore == null) {
+      final var t = new IllegalStateException("No event store set");
+      for (int i = 0; i < num; i++) {
+        results[i] = new Response<>().error(t);
+      }
+
+      return Arrays.asList(results);
+    }
+
+    for (int i = 0; i < num; i++) {
+      final EventInfo ei = events.get(i);
+
+      if ((preset != null) && preset.containsKey(ei)) {
+        results[i] = preset.get(ei);
+      } else {
+        results[i] = validate(ei, op);
+      }
+    }
+
+    if (op == WriteOp.add) {
+      final Set<String> keys = new HashSet<>();
+
+      for (int i = 0; i < num; i++) {
+        if (results[i] != null) {
+          continue;
+        }
+
+        final BwEvent ev = events.get(i).getEvent();
+        if (!keys.add(ev.getUid() + "|" + ev.getRecurrenceId())) {
+          results[i] = invalid("Duplicate uid in batch: " + ev.getUid());
+        }
+      }
+    }
+
+    final List<Integer> group = new ArrayList<>(writeGroupSize);
+    int written = 0;
+
+    try {
+      for (int i = 0; i < num; i++) {
+        if (results[i] != null) {
+          continue;
+        }
+
+        final EventInfo ei = events.get(i);
+
+        try {
+          results[i] = switch (op) {
+            case add -> eventStore.addEvent(ei);
+            case update -> eventStore.updateEvent(ei);
+            case delete -> eventStore.deleteEvent(ei);
+          };
+        } catch (final Throwable t) {
+          results[i] = new Response<>().error(t);
+        }
+
+        if (!results[i].isOk()) {
+          if (!rollback(group, results, ei)) {
+            /* Store state unknown - write nothing more */
+            abandon(i + 1, results);
+            break;
+          }
+
+          continue;
+        }
+
+        group.add(i);
+
+        if (group.size() >= writeGroupSize) {
+          written += commit(group, results);
+        }
+      }
+
+      written += commit(group, results);
+    } finally {
+      invalidateRequestCache();
+    }
+
+    if (debug()) {
+      debug("Batch " + op + " of " + num + " events wrote " + written +
+                    " in " + (System.currentTimeMillis() - start) +
+                    " millis");
+    }
+
+    return Arrays.asList(results);
+  }
+
+  /* Returns the number of events committed */
+  private int commit(final List<Integer> group,
+                     final Response<?>[] results) {
+    if (group.isEmpty()) {
+      return 0;
+    }
+
+    final int num = group.size();
+
+    try {
+      eventStore.commit();
+    } catch (final Throwable t) {
+      /* Nothing in the group is stored */
+      warn("Commit of " + num + " events failed: " +
+                   t.getMessage());
+      for (final int i: group) {
+        results[i] = new Response<>().error(t);
+      }
+
+      group.clear();
+      return 0;
+    }
+
+    group.clear();
+    return num;
+  }
+
+  /* Discard the group after a failed write. The events already
+   * written in the group are not stored so get an error.
+   * Returns false if the rollback failed.
+   */
+  private boolean rollback(final List<Integer> group,
+                           final Response<?>[] results,
+                           final EventInfo failed) {
+    final var t = new IllegalStateException(
+            "Rolled back after the write of " +
+                    failed.getEvent().getUid() + " failed");
+    boolean ok = true;
+
+    try {
+      eventStore.rollback();
+    } catch (final Throwable rt) {
+      warn("Rollback of " + group.size() + " events failed: " +
+                   rt.getMessage());
+      ok = false;
+    }
+
+    for (final int i: group) {
+      results[i] = new Response<>().error(t);
+    }
+
+    group.clear();
+    return ok;
+  }
+
+  /* Fail every event from start on not already decided */
+  private static void abandon(final int start,
+                              final Response<?>[] results) {
+    final var t = new IllegalStateException(
+            "Not written - event store rollback failed");
+
+    for (int i = start; i < results.length; i++) {
+      if (results[i] == null) {
+        results[i] = new Response<>().error(t);
+      }
+    }
+  }
+
+  /* Returns null for a valid event */
+  private static Response<?> validate(final EventInfo ei,
+                                      final WriteOp op) {
+    if ((ei == null) || (ei.getEvent() == null)) {
+      return invalid("No event");
+    }
+
+    final BwEvent ev = ei.getEvent();
+
+    if (ev.getColPath() == null) {
+      return invalid("No collection");
+    }
+
+    if (ev.getUid() == null) {
+      return invalid("No uid");
+    }
+
+    if (op == WriteOp.delete) {
+      return null;
+    }
+
+    if ((ev.getDtstart() == null) && !ev.getNoStart()) {
+      return invalid("No start");
+    }
+
+    if ((ev.getDtstart() != null) && (ev.getDtend() != null) &&
+            (ev.getDtend().compareTo(ev.getDtstart()) < 0)) {
+      return invalid("End before start");
+    }
+
+    return null;
+  }
+
+  private static Response<?> invalid(final String msg) {
+    final Response<?> resp = new Response<>().error(validationError);
+    resp.setMessage(msg);
+
+    return resp;
   }
 }